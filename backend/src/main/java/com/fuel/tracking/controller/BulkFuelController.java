@@ -0,0 +1,134 @@
+package com.fuel.tracking.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fuel.tracking.dto.ApiResponse;
+import com.fuel.tracking.dto.BulkFuelRequest;
+import com.fuel.tracking.dto.BulkFuelResponse;
+import com.fuel.tracking.mapper.FuelMapper;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.service.FuelService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/fuel")
+public class BulkFuelController {
+
+    // Lines parsed and validated before they are handed to the service together
+    private static final int BATCH_SIZE = 1000;
+
+    private final FuelService fuelService;
+    private final ObjectReader requestReader;
+    private final Validator validator;
+
+    public BulkFuelController(FuelService fuelService, ObjectMapper objectMapper, Validator validator) {
+        this.fuelService = fuelService;
+        this.requestReader = objectMapper.readerFor(BulkFuelRequest.class);
+        this.validator = validator;
+    }
+
+    /**
+     * POST /api/fuel/bulk
+     * Add fuel entries for any cars from an NDJSON body, one
+     * {"carId", "liters", "price", "odometer"} object per line. The body is
+     * read line by line and added in batches, so its size does not matter.
+     * A bad line is reported by number and does not stop the others.
+     */
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<ApiResponse<BulkFuelResponse>> addFuelEntries(InputStream body) throws IOException {
+        Batch batch = new Batch();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            BulkFuelRequest request;
+            try {
+                request = requestReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                batch.reject(lineNumber, "Malformed JSON");
+                continue;
+            }
+            Set<ConstraintViolation<BulkFuelRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                batch.reject(lineNumber, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+
+            FuelEntry fuelEntry = FuelMapper.toEntity(request);
+            fuelEntry.setCarId(request.getCarId());
+            batch.add(lineNumber, fuelEntry);
+            if (batch.size() == BATCH_SIZE) {
+                batch.flush();
+            }
+        }
+        batch.flush();
+        batch.errors.sort(Comparator.comparing(BulkFuelResponse.LineError::getLine));
+
+        return ResponseEntity.ok(ApiResponse.success("Fuel entries processed",
+                new BulkFuelResponse(batch.accepted, batch.errors.size(), batch.errors)));
+    }
+
+    /**
+     * Entries waiting to be added, and the running outcome of the upload
+     */
+    private class Batch {
+        private final List<Integer> lineNumbers = new ArrayList<>(BATCH_SIZE);
+        private final List<FuelEntry> fuelEntries = new ArrayList<>(BATCH_SIZE);
+        private final List<BulkFuelResponse.LineError> errors = new ArrayList<>();
+        private int accepted;
+
+        void add(int lineNumber, FuelEntry fuelEntry) {
+            lineNumbers.add(lineNumber);
+            fuelEntries.add(fuelEntry);
+        }
+
+        void reject(int lineNumber, String error) {
+            errors.add(new BulkFuelResponse.LineError(lineNumber, error));
+        }
+
+        int size() {
+            return fuelEntries.size();
+        }
+
+        void flush() {
+            if (fuelEntries.isEmpty()) {
+                return;
+            }
+            List<String> results = fuelService.addFuelEntries(fuelEntries);
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i) == null) {
+                    accepted++;
+                } else {
+                    reject(lineNumbers.get(i), results.get(i));
+                }
+            }
+            lineNumbers.clear();
+            fuelEntries.clear();
+        }
+    }
+}
@@ -1,27 +1,59 @@
 package com.fuel.tracking.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fuel.tracking.dto.ApiResponse;
+import com.fuel.tracking.dto.CarPageResponse;
 import com.fuel.tracking.dto.CarResponse;
 import com.fuel.tracking.dto.CreateCarRequest;
 import com.fuel.tracking.mapper.CarMapper;
 import com.fuel.tracking.model.Car;
 import com.fuel.tracking.service.CarService;
+import com.fuel.tracking.service.ResponseBodyCache;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/cars")
 public class CarController {
 
+    // Cars fetched per step when streaming the whole list
+    private static final int STREAM_PAGE_SIZE = 500;
+    // Page size for a cursor given without a limit
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private final CarService carService;
+    private final ResponseBodyCache responseBodyCache;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader createCarReader;
+    private final Validator validator;
 
-    public CarController(CarService carService) {
+    public CarController(CarService carService, ResponseBodyCache responseBodyCache, ObjectMapper objectMapper,
+            Validator validator) {
         this.carService = carService;
+        this.responseBodyCache = responseBodyCache;
+        this.objectMapper = objectMapper;
+        this.createCarReader = objectMapper.readerFor(CreateCarRequest.class);
+        this.validator = validator;
     }
 
     /**
@@ -41,19 +73,155 @@ public class CarController {
                 .body(ApiResponse.success("Car created successfully", response));
     }
 
+    /**
+     * POST /api/cars/bulk
+     * Create many cars from a JSON array of car requests. Nothing is created
+     * if any car is invalid. Returns the new ids in request order.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ApiResponse<List<Long>>> createCars(@RequestBody List<CreateCarRequest> requests) {
+        List<Car> cars = new ArrayList<>(requests.size());
+        for (CreateCarRequest request : requests) {
+            cars.add(toValidEntity(request, cars.size() + 1));
+        }
+        return created(carService.createCars(cars));
+    }
+
+    /**
+     * POST /api/cars/bulk with an application/x-ndjson body
+     * Same as above, with one car request per line
+     */
+    @PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<ApiResponse<List<Long>>> createCars(InputStream body) throws IOException {
+        List<Car> cars = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            CreateCarRequest request;
+            try {
+                request = createCarReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Car " + (cars.size() + 1) + ": Malformed JSON");
+            }
+            cars.add(toValidEntity(request, cars.size() + 1));
+        }
+        return created(carService.createCars(cars));
+    }
+
+    private Car toValidEntity(CreateCarRequest request, int position) {
+        Set<ConstraintViolation<CreateCarRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException("Car " + position + ": " + violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        return CarMapper.toEntity(request);
+    }
+
+    private ResponseEntity<ApiResponse<List<Long>>> created(List<Car> cars) {
+        List<Long> ids = cars.stream()
+                .map(Car::getId)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(ApiResponse.success(ids.size() + " cars created successfully", ids));
+    }
+
     /**
      * GET /api/cars
-     * Get all cars
+     * Get all cars. Answers 304 Not Modified to an If-None-Match with the
+     * current ETag, which changes whenever any car or fuel entry does. The
+     * JSON is serialized once per version and then served from bytes.
      */
     @GetMapping
-    public ResponseEntity<ApiResponse<List<CarResponse>>> getAllCars() {
-        List<Car> cars = carService.getAllCars();
+    public ResponseEntity<byte[]> getAllCars(WebRequest webRequest) {
+        long version = carService.getFleetVersion();
+        if (webRequest.checkNotModified(EncodedResponses.etag("cars-" + version))) {
+            return null;
+        }
+
+        // Not cached if a car changed while the list was read
+        ResponseBodyCache.EncodedBody body = responseBodyCache.encode("cars", version,
+                carService::getFleetVersion, () -> {
+            List<Car> cars = carService.getAllCars();
+
+            List<CarResponse> response = cars.stream()
+                    .map(this::mapToCarResponse)
+                    .collect(Collectors.toList());
 
-        List<CarResponse> response = cars.stream()
+            return ApiResponse.success(response);
+        });
+
+        return EncodedResponses.ok(body, webRequest);
+    }
+
+    /**
+     * GET /api/cars?after={id}&limit={n}
+     * One page of cars in id order. Follow nextCursor for the next page.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<ApiResponse<CarPageResponse>> getCarPage(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam("limit") int limit) {
+
+        CarService.CarPage page = carService.getCarPage(after, limit);
+
+        List<CarResponse> cars = page.cars().stream()
                 .map(this::mapToCarResponse)
                 .collect(Collectors.toList());
 
-        return ResponseEntity.ok(ApiResponse.success(response));
+        return ResponseEntity.ok(ApiResponse.success(new CarPageResponse(cars, page.nextCursor())));
+    }
+
+    /**
+     * GET /api/cars?after={id}
+     * A cursor without a limit still gets a page, of the default size,
+     * rather than the full list
+     */
+    @GetMapping(params = { "after", "!limit" })
+    public ResponseEntity<ApiResponse<CarPageResponse>> getCarPageAfter(@RequestParam("after") Long after) {
+        return getCarPage(after, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * GET /api/cars?stream=true
+     * Same body as GET /api/cars, written car by car as the list is walked a
+     * page at a time, so memory use does not grow with the fleet.
+     */
+    @GetMapping(params = { "stream=true", "!limit", "!after" })
+    public ResponseEntity<StreamingResponseBody> streamAllCars() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeBooleanField("success", true);
+                generator.writeStringField("message", "Success");
+                generator.writeArrayFieldStart("data");
+
+                CarService.CarPage page = carService.getCarPage(null, STREAM_PAGE_SIZE);
+                while (true) {
+                    for (Car car : page.cars()) {
+                        generator.writeObject(mapToCarResponse(car));
+                    }
+                    generator.flush();
+                    if (page.nextCursor() == null) {
+                        break;
+                    }
+                    page = carService.getCarPage(page.nextCursor(), STREAM_PAGE_SIZE);
+                }
+
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     /**
@@ -66,6 +234,6 @@ public class CarController {
                 car.getModel(),
                 car.getYear(),
                 car.getCreatedAt(),
-                car.getFuelEntries().size());
+                car.getFuelEntryCount());
     }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+package com.fuel.tracking.controller;
+
+import com.fuel.tracking.service.ResponseBodyCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Responses written straight from pre-serialized bytes, gzip-compressed when
+ * the client accepts it and the body is worth compressing
+ */
+final class EncodedResponses {
+
+    private EncodedResponses() {
+    }
+
+    /**
+     * Weak ETag for a resource version. The identity and gzip bodies share
+     * it, so it cannot be a strong one.
+     */
+    static String etag(String tag) {
+        return "W/\"" + tag + "\"";
+    }
+
+    static ResponseEntity<byte[]> ok(ResponseBodyCache.EncodedBody body, WebRequest webRequest) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (ResponseBodyCache.acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            byte[] gzipped = body.gzipped();
+            if (gzipped != null) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                return new ResponseEntity<>(gzipped, headers, HttpStatus.OK);
+            }
+        }
+        return new ResponseEntity<>(body.json(), headers, HttpStatus.OK);
+    }
+}
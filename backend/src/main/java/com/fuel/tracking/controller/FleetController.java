@@ -0,0 +1,129 @@
+package com.fuel.tracking.controller;
+
+import com.fuel.tracking.dto.ApiResponse;
+import com.fuel.tracking.dto.FleetRecomputeResponse;
+import com.fuel.tracking.dto.FleetStatsResponse;
+import com.fuel.tracking.model.FleetRecomputeProgress;
+import com.fuel.tracking.model.FleetStats;
+import com.fuel.tracking.service.FleetRecomputeService;
+import com.fuel.tracking.service.FleetService;
+import com.fuel.tracking.service.FuelStatsCache;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/fleet")
+public class FleetController {
+
+    private final FleetService fleetService;
+    private final FleetRecomputeService fleetRecomputeService;
+    private final FuelStatsCache statsCache;
+
+    public FleetController(FleetService fleetService, FleetRecomputeService fleetRecomputeService,
+            FuelStatsCache statsCache) {
+        this.fleetService = fleetService;
+        this.fleetRecomputeService = fleetRecomputeService;
+        this.statsCache = statsCache;
+    }
+
+    /**
+     * GET /api/fleet/stats
+     * Get fuel statistics across all cars
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<FleetStatsResponse>> getFleetStats() {
+        FleetStats stats = fleetService.calculateFleetStats();
+
+        return ResponseEntity.ok(ApiResponse.success(mapToFleetStatsResponse(stats)));
+    }
+
+    /**
+     * GET /api/fleet/stats?groupBy=brand,model
+     * Get fuel statistics per group of cars, grouped by any of brand, model and year
+     */
+    @GetMapping(value = "/stats", params = "groupBy")
+    public ResponseEntity<ApiResponse<List<FleetStatsResponse>>> getGroupedFleetStats(
+            @RequestParam("groupBy") List<String> groupBy) {
+
+        List<FleetStatsResponse> response = fleetService.calculateFleetStats(groupBy).stream()
+                .map(this::mapToFleetStatsResponse)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(ApiResponse.success(response));
+    }
+
+    /**
+     * POST /api/fleet/stats/recompute
+     * Start recomputing every car's fuel statistics in the background
+     */
+    @PostMapping("/stats/recompute")
+    public ResponseEntity<ApiResponse<FleetRecomputeResponse>> startRecompute() {
+        FleetRecomputeProgress progress = fleetRecomputeService.start();
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Fleet stats recompute started", mapToFleetRecomputeResponse(progress)));
+    }
+
+    /**
+     * GET /api/fleet/stats/recompute
+     * Get progress and throughput of the running or most recent recompute
+     */
+    @GetMapping("/stats/recompute")
+    public ResponseEntity<ApiResponse<FleetRecomputeResponse>> getRecomputeProgress() {
+        FleetRecomputeProgress progress = fleetRecomputeService.getProgress();
+
+        return ResponseEntity.ok(ApiResponse.success(mapToFleetRecomputeResponse(progress)));
+    }
+
+    /**
+     * GET /api/fleet/stats/cache
+     * Get size, hit and miss counts of the per-car stats cache
+     */
+    @GetMapping("/stats/cache")
+    public ResponseEntity<ApiResponse<FuelStatsCache.Metrics>> getStatsCacheMetrics() {
+        return ResponseEntity.ok(ApiResponse.success(statsCache.getMetrics()));
+    }
+
+    /**
+     * Helper method for mapping FleetRecomputeProgress to DTO
+     */
+    private FleetRecomputeResponse mapToFleetRecomputeResponse(FleetRecomputeProgress progress) {
+        return new FleetRecomputeResponse(
+                progress.getStatus().name(),
+                progress.getTotalCars(),
+                progress.getCompletedCars(),
+                progress.getCompletedEntries(),
+                progress.getPercentComplete(),
+                progress.getCarsPerSecond(),
+                progress.getEntriesPerSecond(),
+                progress.getElapsedMillis(),
+                progress.getStartedAt(),
+                progress.getFinishedAt());
+    }
+
+    /**
+     * Helper method for mapping FleetStats to DTO
+     */
+    private FleetStatsResponse mapToFleetStatsResponse(FleetStats stats) {
+        FleetStatsResponse response = new FleetStatsResponse(
+                stats.getTotalCars(),
+                stats.getTotalEntries(),
+                stats.getTotalFuelLiters(),
+                stats.getTotalCost(),
+                stats.getAverageConsumption(),
+                stats.getAveragePricePerLiter(),
+                stats.getCostPer100km());
+        response.setBrand(stats.getBrand());
+        response.setModel(stats.getModel());
+        response.setYear(stats.getYear());
+        return response;
+    }
+}
@@ -1,26 +1,55 @@
 package com.fuel.tracking.controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fuel.tracking.dto.AddFuelRequest;
 import com.fuel.tracking.dto.ApiResponse;
+import com.fuel.tracking.dto.FuelEntryPageResponse;
 import com.fuel.tracking.dto.FuelEntryResponse;
 import com.fuel.tracking.dto.FuelStatsResponse;
 import com.fuel.tracking.mapper.FuelMapper;
 import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
 import com.fuel.tracking.model.FuelStats;
 import com.fuel.tracking.service.FuelService;
+import com.fuel.tracking.service.ResponseBodyCache;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/cars/{carId}/fuel")
 public class FuelController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final FuelService fuelService;
+    private final ResponseBodyCache responseBodyCache;
+    // One entry per line: no indentation, and no flush after every entry
+    private final ObjectWriter ndjsonWriter;
+    private final JsonFactory jsonFactory;
 
-    public FuelController(FuelService fuelService) {
+    public FuelController(FuelService fuelService, ResponseBodyCache responseBodyCache,
+            ObjectMapper objectMapper) {
         this.fuelService = fuelService;
+        this.responseBodyCache = responseBodyCache;
+        this.ndjsonWriter = objectMapper.writerFor(FuelEntryResponse.class)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.jsonFactory = objectMapper.getFactory();
     }
 
     /**
@@ -42,17 +71,185 @@ public class FuelController {
     }
 
     /**
-     * GET /api/cars/{carId}/fuel/stats
-     * Get fuel statistics for a specific car
+     * GET /api/cars/{carId}/fuel?offset=&limit=
+     * GET /api/cars/{carId}/fuel?after=&limit=
+     * A page of the car's fuel entries in odometer order, from an offset or
+     * after the entry id given as nextCursor by the previous page
+     */
+    @GetMapping
+    public ResponseEntity<ApiResponse<FuelEntryPageResponse>> getFuelEntries(
+            @PathVariable("carId") Long carId,
+            @RequestParam(value = "offset", required = false) Integer offset,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            WebRequest webRequest) {
+
+        if (notModified(carId, webRequest)) {
+            return null;
+        }
+
+        FuelService.FuelEntryPage page = fuelService.getFuelEntryPage(carId, offset, after, limit);
+
+        List<FuelEntryResponse> entries = page.entries().stream()
+                .map(this::mapToFuelEntryResponse)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(ApiResponse.success(
+                new FuelEntryPageResponse(entries, page.nextCursor(), page.totalEntries())));
+    }
+
+    /**
+     * GET /api/cars/{carId}/fuel with Accept: application/x-ndjson
+     * The car's whole fuel history, one JSON entry per line. Entries are
+     * written one at a time from a snapshot of the history, so exporting a
+     * long history never holds it as a list.
+     */
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamFuelEntries(@PathVariable("carId") Long carId) {
+        FuelHistory.Snapshot history = fuelService.getFuelHistory(carId);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = jsonFactory.createGenerator(outputStream)) {
+                generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+                for (int i = 0; i < history.size(); i++) {
+                    ndjsonWriter.writeValue(generator, mapToFuelEntryResponse(history.getEntry(i)));
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .eTag(etag(carId, history.version()))
+                .body(body);
+    }
+
+    /**
+     * GET /api/cars/{carId}/fuel/{entryId}
+     * Get a single fuel entry
+     */
+    @GetMapping("/{entryId}")
+    public ResponseEntity<ApiResponse<FuelEntryResponse>> getFuelEntry(
+            @PathVariable("carId") Long carId,
+            @PathVariable("entryId") Long entryId,
+            WebRequest webRequest) {
+
+        if (notModified(carId, webRequest)) {
+            return null;
+        }
+
+        FuelEntry fuelEntry = fuelService.getFuelEntry(carId, entryId);
+
+        return ResponseEntity.ok(ApiResponse.success(mapToFuelEntryResponse(fuelEntry)));
+    }
+
+    /**
+     * PUT /api/cars/{carId}/fuel/{entryId}
+     * Correct a fuel entry
+     */
+    @PutMapping("/{entryId}")
+    public ResponseEntity<ApiResponse<FuelEntryResponse>> updateFuelEntry(
+            @PathVariable("carId") Long carId,
+            @PathVariable("entryId") Long entryId,
+            @Valid @RequestBody AddFuelRequest request) {
+
+        FuelEntry fuelEntry = FuelMapper.toEntity(request);
+        FuelEntry updatedEntry = fuelService.updateFuelEntry(carId, entryId, fuelEntry);
+
+        return ResponseEntity.ok(ApiResponse.success("Fuel entry updated successfully",
+                mapToFuelEntryResponse(updatedEntry)));
+    }
+
+    /**
+     * DELETE /api/cars/{carId}/fuel/{entryId}
+     * Delete a fuel entry
+     */
+    @DeleteMapping("/{entryId}")
+    public ResponseEntity<ApiResponse<Void>> deleteFuelEntry(
+            @PathVariable("carId") Long carId,
+            @PathVariable("entryId") Long entryId) {
+
+        fuelService.deleteFuelEntry(carId, entryId);
+
+        return ResponseEntity.ok(ApiResponse.success("Fuel entry deleted successfully", null));
+    }
+
+    /**
+     * GET /api/cars/{carId}/fuel/stats?from=&to=
+     * Get fuel statistics for a specific car, optionally limited to entries
+     * recorded from (inclusive) to (exclusive), as ISO date-times
      */
     @GetMapping("/stats")
-    public ResponseEntity<ApiResponse<FuelStatsResponse>> getFuelStats(
-            @PathVariable("carId") Long carId) {
+    public ResponseEntity<byte[]> getFuelStats(
+            @PathVariable("carId") Long carId,
+            @RequestParam(value = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(value = "to", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            WebRequest webRequest) {
+
+        long version = fuelService.getCarVersion(carId);
+        if (webRequest.checkNotModified(EncodedResponses.etag(etag(carId, version)))) {
+            return null;
+        }
+
+        // Serialized once per car version (and window), then served from bytes
+        String resource = "fuel-stats:" + carId + ":" + from + ":" + to;
+        ResponseBodyCache.EncodedBody body = responseBodyCache.encode(resource, version,
+                () -> fuelService.getCarVersion(carId), () -> {
+            FuelStats stats = from == null && to == null
+                    ? fuelService.calculateFuelStats(carId)
+                    : fuelService.calculateFuelStats(carId, from, to);
+            FuelStatsResponse response = mapToFuelStatsResponse(stats);
 
-        FuelStats stats = fuelService.calculateFuelStats(carId);
-        FuelStatsResponse response = mapToFuelStatsResponse(stats);
+            return ApiResponse.success(response);
+        });
+
+        return EncodedResponses.ok(body, webRequest);
+    }
+
+    /**
+     * GET /api/cars/{carId}/fuel/stats/range?fromOdometer=&toOdometer=
+     * GET /api/cars/{carId}/fuel/stats/range?fromIndex=&toIndex=
+     * Get fuel statistics for an odometer range (km, inclusive) or for a range
+     * of entries by position in odometer order (from inclusive, to exclusive)
+     */
+    @GetMapping("/stats/range")
+    public ResponseEntity<ApiResponse<FuelStatsResponse>> getFuelStatsForRange(
+            @PathVariable("carId") Long carId,
+            @RequestParam(value = "fromOdometer", required = false) Integer fromOdometer,
+            @RequestParam(value = "toOdometer", required = false) Integer toOdometer,
+            @RequestParam(value = "fromIndex", required = false) Integer fromIndex,
+            @RequestParam(value = "toIndex", required = false) Integer toIndex,
+            WebRequest webRequest) {
+
+        boolean byOdometer = fromOdometer != null || toOdometer != null;
+        boolean byIndex = fromIndex != null || toIndex != null;
+        if (byOdometer && byIndex) {
+            throw new IllegalArgumentException("Give either an odometer range or an entry index range, not both");
+        }
+        if (notModified(carId, webRequest)) {
+            return null;
+        }
+
+        FuelStats stats = byIndex
+                ? fuelService.calculateFuelStatsForEntryRange(carId, fromIndex, toIndex)
+                : fuelService.calculateFuelStatsForOdometerRange(carId, fromOdometer, toOdometer);
+
+        return ResponseEntity.ok(ApiResponse.success(mapToFuelStatsResponse(stats)));
+    }
+
+    /**
+     * Answer 304 Not Modified, without computing the body, when the client's
+     * If-None-Match holds the ETag of the car's current version; otherwise
+     * set that ETag on the response
+     */
+    private boolean notModified(Long carId, WebRequest webRequest) {
+        return webRequest.checkNotModified(etag(carId, fuelService.getCarVersion(carId)));
+    }
 
-        return ResponseEntity.ok(ApiResponse.success(response));
+    private String etag(Long carId, long version) {
+        return "car-" + carId + "-" + version;
     }
 
     /**
@@ -0,0 +1,21 @@
+package com.fuel.tracking.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * One line of a bulk fuel upload: a fuel entry and the car it belongs to
+ */
+public class BulkFuelRequest extends AddFuelRequest {
+
+    @NotNull(message = "Car id is required")
+    private Long carId;
+
+    // Getters and Setters
+    public Long getCarId() {
+        return carId;
+    }
+
+    public void setCarId(Long carId) {
+        this.carId = carId;
+    }
+}
@@ -0,0 +1,82 @@
+package com.fuel.tracking.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk fuel upload: counts, and the line number and reason of
+ * each rejected line. Accepted lines are not listed.
+ */
+public class BulkFuelResponse {
+
+    private Integer accepted;
+
+    private Integer rejected;
+
+    private List<LineError> errors;
+
+    // Constructors
+    public BulkFuelResponse() {
+    }
+
+    public BulkFuelResponse(Integer accepted, Integer rejected, List<LineError> errors) {
+        this.accepted = accepted;
+        this.rejected = rejected;
+        this.errors = errors;
+    }
+
+    // Getters and Setters
+    public Integer getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(Integer accepted) {
+        this.accepted = accepted;
+    }
+
+    public Integer getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(Integer rejected) {
+        this.rejected = rejected;
+    }
+
+    public List<LineError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<LineError> errors) {
+        this.errors = errors;
+    }
+
+    public static class LineError {
+
+        private Integer line;
+
+        private String error;
+
+        public LineError() {
+        }
+
+        public LineError(Integer line, String error) {
+            this.line = line;
+            this.error = error;
+        }
+
+        public Integer getLine() {
+            return line;
+        }
+
+        public void setLine(Integer line) {
+            this.line = line;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.fuel.tracking.dto;
+
+import java.util.List;
+
+/**
+ * One page of cars. Pass nextCursor as ?after= to get the next page; it is
+ * absent on the last page.
+ */
+public class CarPageResponse {
+
+    private List<CarResponse> cars;
+
+    private Long nextCursor;
+
+    // Constructors
+    public CarPageResponse() {
+    }
+
+    public CarPageResponse(List<CarResponse> cars, Long nextCursor) {
+        this.cars = cars;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and Setters
+    public List<CarResponse> getCars() {
+        return cars;
+    }
+
+    public void setCars(List<CarResponse> cars) {
+        this.cars = cars;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
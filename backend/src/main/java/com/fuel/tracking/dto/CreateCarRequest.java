@@ -3,13 +3,17 @@ package com.fuel.tracking.dto;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
 
 public class CreateCarRequest {
 
+    // Well within the 64 KB limit of the strings in the durable store's records
     @NotBlank(message = "Brand is required")
+    @Size(max = 255, message = "Brand must be at most 255 characters")
     private String brand;
 
     @NotBlank(message = "Model is required")
+    @Size(max = 255, message = "Model must be at most 255 characters")
     private String model;
 
     @NotNull(message = "Year is required")
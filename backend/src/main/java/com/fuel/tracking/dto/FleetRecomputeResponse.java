@@ -0,0 +1,135 @@
+package com.fuel.tracking.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FleetRecomputeResponse {
+
+    private String status;
+
+    private Long totalCars;
+
+    private Long completedCars;
+
+    private Long completedEntries;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.0")
+    private Double percentComplete;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.0")
+    private Double carsPerSecond;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.0")
+    private Double entriesPerSecond;
+
+    private Long elapsedMillis;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startedAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime finishedAt;
+
+    // Constructors
+    public FleetRecomputeResponse() {
+    }
+
+    public FleetRecomputeResponse(String status, Long totalCars, Long completedCars, Long completedEntries,
+            Double percentComplete, Double carsPerSecond, Double entriesPerSecond,
+            Long elapsedMillis, LocalDateTime startedAt, LocalDateTime finishedAt) {
+        this.status = status;
+        this.totalCars = totalCars;
+        this.completedCars = completedCars;
+        this.completedEntries = completedEntries;
+        this.percentComplete = percentComplete;
+        this.carsPerSecond = carsPerSecond;
+        this.entriesPerSecond = entriesPerSecond;
+        this.elapsedMillis = elapsedMillis;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+    }
+
+    // Getters and Setters
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Long getTotalCars() {
+        return totalCars;
+    }
+
+    public void setTotalCars(Long totalCars) {
+        this.totalCars = totalCars;
+    }
+
+    public Long getCompletedCars() {
+        return completedCars;
+    }
+
+    public void setCompletedCars(Long completedCars) {
+        this.completedCars = completedCars;
+    }
+
+    public Long getCompletedEntries() {
+        return completedEntries;
+    }
+
+    public void setCompletedEntries(Long completedEntries) {
+        this.completedEntries = completedEntries;
+    }
+
+    public Double getPercentComplete() {
+        return percentComplete;
+    }
+
+    public void setPercentComplete(Double percentComplete) {
+        this.percentComplete = percentComplete;
+    }
+
+    public Double getCarsPerSecond() {
+        return carsPerSecond;
+    }
+
+    public void setCarsPerSecond(Double carsPerSecond) {
+        this.carsPerSecond = carsPerSecond;
+    }
+
+    public Double getEntriesPerSecond() {
+        return entriesPerSecond;
+    }
+
+    public void setEntriesPerSecond(Double entriesPerSecond) {
+        this.entriesPerSecond = entriesPerSecond;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(Long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
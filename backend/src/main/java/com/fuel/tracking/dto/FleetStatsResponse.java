@@ -0,0 +1,129 @@
+package com.fuel.tracking.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FleetStatsResponse {
+
+    // Set only on grouped stats, for the fields grouped by
+    private String brand;
+    private String model;
+    private Integer year;
+
+    private Long totalCars;
+
+    private Long totalEntries;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.0")
+    private Double totalFuelLiters;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.00")
+    private Double totalCost;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.0")
+    private Double averageConsumption;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.00")
+    private Double averagePricePerLiter;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "0.00")
+    private Double costPer100km;
+
+    // Constructors
+    public FleetStatsResponse() {
+    }
+
+    public FleetStatsResponse(Long totalCars, Long totalEntries, Double totalFuelLiters,
+            Double totalCost, Double averageConsumption,
+            Double averagePricePerLiter, Double costPer100km) {
+        this.totalCars = totalCars;
+        this.totalEntries = totalEntries;
+        this.totalFuelLiters = totalFuelLiters;
+        this.totalCost = totalCost;
+        this.averageConsumption = averageConsumption;
+        this.averagePricePerLiter = averagePricePerLiter;
+        this.costPer100km = costPer100km;
+    }
+
+    // Getters and Setters
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public Long getTotalCars() {
+        return totalCars;
+    }
+
+    public void setTotalCars(Long totalCars) {
+        this.totalCars = totalCars;
+    }
+
+    public Long getTotalEntries() {
+        return totalEntries;
+    }
+
+    public void setTotalEntries(Long totalEntries) {
+        this.totalEntries = totalEntries;
+    }
+
+    public Double getTotalFuelLiters() {
+        return totalFuelLiters;
+    }
+
+    public void setTotalFuelLiters(Double totalFuelLiters) {
+        this.totalFuelLiters = totalFuelLiters;
+    }
+
+    public Double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(Double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public Double getAverageConsumption() {
+        return averageConsumption;
+    }
+
+    public void setAverageConsumption(Double averageConsumption) {
+        this.averageConsumption = averageConsumption;
+    }
+
+    public Double getAveragePricePerLiter() {
+        return averagePricePerLiter;
+    }
+
+    public void setAveragePricePerLiter(Double averagePricePerLiter) {
+        this.averagePricePerLiter = averagePricePerLiter;
+    }
+
+    public Double getCostPer100km() {
+        return costPer100km;
+    }
+
+    public void setCostPer100km(Double costPer100km) {
+        this.costPer100km = costPer100km;
+    }
+}
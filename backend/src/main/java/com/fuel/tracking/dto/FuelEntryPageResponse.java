@@ -0,0 +1,51 @@
+package com.fuel.tracking.dto;
+
+import java.util.List;
+
+/**
+ * One page of a car's fuel entries, in odometer order. Pass nextCursor as
+ * ?after= to get the next page; it is absent on the last page.
+ */
+public class FuelEntryPageResponse {
+
+    private List<FuelEntryResponse> entries;
+
+    private Long nextCursor;
+
+    private Integer totalEntries;
+
+    // Constructors
+    public FuelEntryPageResponse() {
+    }
+
+    public FuelEntryPageResponse(List<FuelEntryResponse> entries, Long nextCursor, Integer totalEntries) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+        this.totalEntries = totalEntries;
+    }
+
+    // Getters and Setters
+    public List<FuelEntryResponse> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<FuelEntryResponse> entries) {
+        this.entries = entries;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(Long nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Integer getTotalEntries() {
+        return totalEntries;
+    }
+
+    public void setTotalEntries(Integer totalEntries) {
+        this.totalEntries = totalEntries;
+    }
+}
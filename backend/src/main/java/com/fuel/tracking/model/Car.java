@@ -1,15 +1,16 @@
 package com.fuel.tracking.model;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
 
 public class Car {
     private Long id;
     private String brand;
     private String model;
     private Integer year;
-    private List<FuelEntry> fuelEntries = new ArrayList<>();
+    private volatile FuelHistory fuelHistory = new FuelHistory();
     private LocalDateTime createdAt;
 
     // Constructors
@@ -57,12 +58,67 @@ public class Car {
         this.year = year;
     }
 
+    /**
+     * Materialized copy of the fuel entries, in odometer order
+     */
     public List<FuelEntry> getFuelEntries() {
+        List<FuelEntry> fuelEntries = fuelHistory.toList();
+        fuelEntries.forEach(fuelEntry -> fuelEntry.setCarId(id));
         return fuelEntries;
     }
 
+    /**
+     * Materialize a single entry by id, without copying the rest of the history
+     */
+    public Optional<FuelEntry> findFuelEntry(long fuelEntryId) {
+        return findFuelEntry(fuelEntryId, -1);
+    }
+
+    /**
+     * findFuelEntry, checking the position the entry was last seen at before
+     * searching the history
+     */
+    public Optional<FuelEntry> findFuelEntry(long fuelEntryId, int positionHint) {
+        FuelHistory.Snapshot history = fuelHistory.snapshot();
+        int index = history.indexOfId(fuelEntryId, positionHint);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        FuelEntry fuelEntry = history.getEntry(index);
+        fuelEntry.setCarId(id);
+        return Optional.of(fuelEntry);
+    }
+
     public void setFuelEntries(List<FuelEntry> fuelEntries) {
-        this.fuelEntries = fuelEntries;
+        FuelHistory history = new FuelHistory();
+        // History is kept in odometer order, whatever order the list is in
+        fuelEntries.stream()
+                .sorted(Comparator.comparing(FuelEntry::getOdometer))
+                .forEach(history::append);
+        this.fuelHistory = history;
+    }
+
+    public FuelHistory getFuelHistory() {
+        return fuelHistory;
+    }
+
+    public void setFuelHistory(FuelHistory fuelHistory) {
+        this.fuelHistory = fuelHistory;
+    }
+
+    /**
+     * Goes up on every change to the car's fuel entries
+     */
+    public long getVersion() {
+        return fuelHistory.getVersion();
+    }
+
+    public int getFuelEntryCount() {
+        return fuelHistory.size();
+    }
+
+    public FuelAggregate getFuelAggregate() {
+        return fuelHistory.getAggregate();
     }
 
     public LocalDateTime getCreatedAt() {
@@ -74,7 +130,78 @@ public class Car {
     }
 
     // Helper methods
+
+    /**
+     * Append a fuel entry, rejecting an odometer reading below the highest one
+     * recorded so far. Callers serialize appends per car, which makes the
+     * check and the append atomic.
+     */
     public void addFuelEntry(FuelEntry fuelEntry) {
-        this.fuelEntries.add(fuelEntry);
+        Integer highestOdometer = fuelHistory.getMaxOdometer();
+        if (highestOdometer != null && fuelEntry.getOdometer() < highestOdometer) {
+            throw new IllegalArgumentException(
+                    String.format("New odometer reading (%d) is less than previous highest (%d). " +
+                            "Odometer must always increase.",
+                            fuelEntry.getOdometer(), highestOdometer));
+        }
+        this.fuelHistory.append(fuelEntry);
+    }
+
+    /**
+     * Replace the entry with the same id in place, keeping its original
+     * timestamp. The new odometer reading must stay between the readings of
+     * the entries around it. Returns false if the car has no such entry.
+     */
+    public boolean replaceFuelEntry(FuelEntry fuelEntry) {
+        FuelHistory.Snapshot history = fuelHistory.snapshot();
+        int index = history.indexOfId(fuelEntry.getId());
+        if (index < 0) {
+            return false;
+        }
+
+        int odometer = fuelEntry.getOdometer();
+        if (index > 0 && odometer < history.getOdometer(index - 1)) {
+            throw new IllegalArgumentException(
+                    String.format("Odometer reading (%d) is less than the previous entry's (%d)",
+                            odometer, history.getOdometer(index - 1)));
+        }
+        if (index < history.size() - 1 && odometer > history.getOdometer(index + 1)) {
+            throw new IllegalArgumentException(
+                    String.format("Odometer reading (%d) is greater than the next entry's (%d)",
+                            odometer, history.getOdometer(index + 1)));
+        }
+        fuelEntry.setTimestamp(FuelHistory.fromEpochNanos(history.getTimestampNanos(index)));
+
+        // Running aggregates cannot take an entry back out, so rebuild the history
+        FuelHistory rebuilt = new FuelHistory();
+        for (int i = 0; i < history.size(); i++) {
+            if (i == index) {
+                rebuilt.append(fuelEntry);
+            } else {
+                rebuilt.append(history.getEntry(i));
+            }
+        }
+        this.fuelHistory = rebuilt;
+        return true;
+    }
+
+    /**
+     * Remove the entry with the given id. Returns false if the car has no such entry.
+     */
+    public boolean removeFuelEntry(long fuelEntryId) {
+        FuelHistory.Snapshot history = fuelHistory.snapshot();
+        int index = history.indexOfId(fuelEntryId);
+        if (index < 0) {
+            return false;
+        }
+
+        FuelHistory rebuilt = new FuelHistory();
+        for (int i = 0; i < history.size(); i++) {
+            if (i != index) {
+                rebuilt.append(history.getEntry(i));
+            }
+        }
+        this.fuelHistory = rebuilt;
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,114 @@
+package com.fuel.tracking.model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fleet-wide totals over every car's fuel history, kept current as cars and
+ * entries change, so fleet stats are read in O(1) instead of visiting every
+ * car.
+ *
+ * Each change adds the difference between the car's aggregate before and
+ * after it. The counters are LongAdders, which spread concurrent updates over
+ * separate cells, so writers to different cars do not contend on a shared
+ * field. Sums are held in fixed point (millionths) since LongAdder adds whole
+ * numbers; a car always contributes the rounded value of its own totals, so
+ * rounding does not drift however many changes are applied.
+ *
+ * Reads add the cells up without locking; while writes are in flight the
+ * counters may reflect slightly different moments.
+ */
+public class FleetAggregate {
+    private static final double SCALE = 1_000_000.0;
+
+    private final LongAdder carCount = new LongAdder();
+    private final LongAdder entryCount = new LongAdder();
+    private final LongAdder segmentCount = new LongAdder();
+    private final LongAdder litersMicros = new LongAdder();
+    private final LongAdder costMicros = new LongAdder();
+    private final LongAdder consumptionMicros = new LongAdder();
+
+    /**
+     * Record a car's aggregate changing from before to after. A null before
+     * adds a car to the fleet, a null after removes it.
+     */
+    public void replace(FuelAggregate.State before, FuelAggregate.State after) {
+        if (before == null ? after == null : before.equals(after)) {
+            return; // Nothing changed, e.g. a car saved again without new entries
+        }
+        if (before == null) {
+            carCount.increment();
+        } else if (after == null) {
+            carCount.decrement();
+        }
+
+        entryCount.add((after != null ? after.entryCount() : 0) - (before != null ? before.entryCount() : 0));
+        segmentCount.add((after != null ? after.segmentCount() : 0) - (before != null ? before.segmentCount() : 0));
+        litersMicros.add(toFixed(after != null ? after.totalLiters() : 0.0)
+                - toFixed(before != null ? before.totalLiters() : 0.0));
+        costMicros.add(toFixed(after != null ? after.totalCost() : 0.0)
+                - toFixed(before != null ? before.totalCost() : 0.0));
+        consumptionMicros.add(toFixed(after != null ? after.consumptionSum() : 0.0)
+                - toFixed(before != null ? before.consumptionSum() : 0.0));
+    }
+
+    /**
+     * Add totals read back from storage, e.g. a group restored from an archive
+     */
+    public void add(Totals totals) {
+        carCount.add(totals.carCount());
+        entryCount.add(totals.entryCount());
+        segmentCount.add(totals.segmentCount());
+        litersMicros.add(totals.litersMicros());
+        costMicros.add(totals.costMicros());
+        consumptionMicros.add(totals.consumptionMicros());
+    }
+
+    /**
+     * The counters as held, sums still in millionths, so they can be stored
+     * and added back without rounding
+     */
+    public Totals totals() {
+        return new Totals(carCount.sum(), entryCount.sum(), segmentCount.sum(),
+                litersMicros.sum(), costMicros.sum(), consumptionMicros.sum());
+    }
+
+    public record Totals(long carCount, long entryCount, long segmentCount,
+            long litersMicros, long costMicros, long consumptionMicros) {
+    }
+
+    public long getCarCount() {
+        return carCount.sum();
+    }
+
+    public long getEntryCount() {
+        return entryCount.sum();
+    }
+
+    public double getTotalLiters() {
+        return litersMicros.sum() / SCALE;
+    }
+
+    public double getTotalCost() {
+        return costMicros.sum() / SCALE;
+    }
+
+    public double getConsumptionSum() {
+        return consumptionMicros.sum() / SCALE;
+    }
+
+    public long getSegmentCount() {
+        return segmentCount.sum();
+    }
+
+    /**
+     * Average of all segment consumptions across the fleet, in L/100km
+     */
+    public double getAverageConsumption() {
+        long segments = segmentCount.sum();
+        return segments == 0 ? 0.0 : consumptionMicros.sum() / SCALE / segments;
+    }
+
+    private static long toFixed(double value) {
+        return Math.round(value * SCALE);
+    }
+}
@@ -0,0 +1,94 @@
+package com.fuel.tracking.model;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fleet totals plus one set of totals per (brand, model, year) group, all
+ * kept current from the same before/after changes.
+ *
+ * Coarser groupings, e.g. by brand only, are folded from these groups on
+ * read, so a grouped report costs time in the number of groups rather than
+ * the number of cars or entries. A car's group is read from the car at each
+ * change; brand, model and year are fixed once a car is saved.
+ */
+public class FleetAggregates {
+
+    private final FleetAggregate total = new FleetAggregate();
+    private final Map<Group, FleetAggregate> groups = new ConcurrentHashMap<>();
+    private final LongAdder changes = new LongAdder();
+
+    /**
+     * Record a change to one car's aggregate. A null before adds the car, a
+     * null after removes it.
+     */
+    public void replace(Car car, FuelAggregate.State before, FuelAggregate.State after) {
+        replace(before != null ? car : null, before, after != null ? car : null, after);
+    }
+
+    /**
+     * Record a car being replaced by another under the same id, moving its
+     * totals across if the two belong to different groups
+     */
+    public void replace(Car previous, FuelAggregate.State before, Car car, FuelAggregate.State after) {
+        total.replace(before, after);
+        changes.increment();
+
+        Group from = previous != null ? Group.of(previous) : null;
+        Group to = car != null ? Group.of(car) : null;
+        if (Objects.equals(from, to)) {
+            if (to != null) {
+                group(to).replace(before, after);
+            }
+            return;
+        }
+        if (from != null) {
+            group(from).replace(before, null);
+        }
+        if (to != null) {
+            group(to).replace(null, after);
+        }
+    }
+
+    /**
+     * Add a group's stored totals to the group and to the fleet total
+     */
+    public void add(Group key, FleetAggregate.Totals totals) {
+        total.add(totals);
+        group(key).add(totals);
+        changes.increment();
+    }
+
+    /**
+     * Goes up on every change to any car. Changes are counted after they
+     * are applied, so state read after this version is at least as new.
+     */
+    public long getVersion() {
+        return changes.sum();
+    }
+
+    public FleetAggregate getTotal() {
+        return total;
+    }
+
+    /**
+     * Totals per (brand, model, year). Groups whose cars were all deleted
+     * stay in the map with a car count of zero.
+     */
+    public Map<Group, FleetAggregate> getGroups() {
+        return groups;
+    }
+
+    private FleetAggregate group(Group key) {
+        return groups.computeIfAbsent(key, k -> new FleetAggregate());
+    }
+
+    public record Group(String brand, String model, Integer year) {
+
+        public static Group of(Car car) {
+            return new Group(car.getBrand(), car.getModel(), car.getYear());
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.fuel.tracking.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Point-in-time progress of a fleet-wide stats recompute
+ */
+public class FleetRecomputeProgress {
+
+    public enum Status {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    private final Status status;
+    private final long totalCars;
+    private final long completedCars;
+    private final long completedEntries;
+    private final LocalDateTime startedAt;
+    private final LocalDateTime finishedAt;
+    private final long elapsedMillis;
+
+    public FleetRecomputeProgress(Status status, long totalCars, long completedCars, long completedEntries,
+            LocalDateTime startedAt, LocalDateTime finishedAt, long elapsedMillis) {
+        this.status = status;
+        this.totalCars = totalCars;
+        this.completedCars = completedCars;
+        this.completedEntries = completedEntries;
+        this.startedAt = startedAt;
+        this.finishedAt = finishedAt;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public static FleetRecomputeProgress idle() {
+        return new FleetRecomputeProgress(Status.IDLE, 0, 0, 0, null, null, 0);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getTotalCars() {
+        return totalCars;
+    }
+
+    public long getCompletedCars() {
+        return completedCars;
+    }
+
+    public long getCompletedEntries() {
+        return completedEntries;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getPercentComplete() {
+        return totalCars == 0 ? (status == Status.IDLE ? 0.0 : 100.0) : completedCars * 100.0 / totalCars;
+    }
+
+    /**
+     * Throughput so far, in cars per second
+     */
+    public double getCarsPerSecond() {
+        return elapsedMillis == 0 ? 0.0 : completedCars * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * Throughput so far, in fuel entries scanned per second
+     */
+    public double getEntriesPerSecond() {
+        return elapsedMillis == 0 ? 0.0 : completedEntries * 1000.0 / elapsedMillis;
+    }
+}
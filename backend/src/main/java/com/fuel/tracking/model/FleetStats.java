@@ -0,0 +1,172 @@
+package com.fuel.tracking.model;
+
+/**
+ * Fuel statistics across every car in the fleet, or in one group of it
+ */
+public class FleetStats {
+
+    // Set only on grouped stats, for the fields grouped by
+    private String brand;
+    private String model;
+    private Integer year;
+
+    private Long totalCars;
+    private Long totalEntries;
+    private Double totalFuelLiters;
+    private Double totalCost;
+    private Double averageConsumption; // L/100km, average over every segment of every car
+    private Double averagePricePerLiter;
+    private Double costPer100km;
+
+    // Constructors
+    public FleetStats() {
+    }
+
+    public FleetStats(Long totalCars, Long totalEntries, Double totalFuelLiters,
+            Double totalCost, Double averageConsumption,
+            Double averagePricePerLiter, Double costPer100km) {
+        this.totalCars = totalCars;
+        this.totalEntries = totalEntries;
+        this.totalFuelLiters = totalFuelLiters;
+        this.totalCost = totalCost;
+        this.averageConsumption = averageConsumption;
+        this.averagePricePerLiter = averagePricePerLiter;
+        this.costPer100km = costPer100km;
+    }
+
+    // Getters and Setters
+    public String getBrand() {
+        return brand;
+    }
+
+    public void setBrand(String brand) {
+        this.brand = brand;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    public void setYear(Integer year) {
+        this.year = year;
+    }
+
+    public Long getTotalCars() {
+        return totalCars;
+    }
+
+    public void setTotalCars(Long totalCars) {
+        this.totalCars = totalCars;
+    }
+
+    public Long getTotalEntries() {
+        return totalEntries;
+    }
+
+    public void setTotalEntries(Long totalEntries) {
+        this.totalEntries = totalEntries;
+    }
+
+    public Double getTotalFuelLiters() {
+        return totalFuelLiters;
+    }
+
+    public void setTotalFuelLiters(Double totalFuelLiters) {
+        this.totalFuelLiters = totalFuelLiters;
+    }
+
+    public Double getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(Double totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public Double getAverageConsumption() {
+        return averageConsumption;
+    }
+
+    public void setAverageConsumption(Double averageConsumption) {
+        this.averageConsumption = averageConsumption;
+    }
+
+    public Double getAveragePricePerLiter() {
+        return averagePricePerLiter;
+    }
+
+    public void setAveragePricePerLiter(Double averagePricePerLiter) {
+        this.averagePricePerLiter = averagePricePerLiter;
+    }
+
+    public Double getCostPer100km() {
+        return costPer100km;
+    }
+
+    public void setCostPer100km(Double costPer100km) {
+        this.costPer100km = costPer100km;
+    }
+
+    // Builder pattern for easier creation
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Long totalCars = 0L;
+        private Long totalEntries = 0L;
+        private Double totalFuelLiters = 0.0;
+        private Double totalCost = 0.0;
+        private Double averageConsumption = 0.0;
+        private Double averagePricePerLiter = 0.0;
+        private Double costPer100km = 0.0;
+
+        public Builder totalCars(Long totalCars) {
+            this.totalCars = totalCars;
+            return this;
+        }
+
+        public Builder totalEntries(Long totalEntries) {
+            this.totalEntries = totalEntries;
+            return this;
+        }
+
+        public Builder totalFuelLiters(Double totalFuelLiters) {
+            this.totalFuelLiters = totalFuelLiters;
+            return this;
+        }
+
+        public Builder totalCost(Double totalCost) {
+            this.totalCost = totalCost;
+            return this;
+        }
+
+        public Builder averageConsumption(Double averageConsumption) {
+            this.averageConsumption = averageConsumption;
+            return this;
+        }
+
+        public Builder averagePricePerLiter(Double averagePricePerLiter) {
+            this.averagePricePerLiter = averagePricePerLiter;
+            return this;
+        }
+
+        public Builder costPer100km(Double costPer100km) {
+            this.costPer100km = costPer100km;
+            return this;
+        }
+
+        public FleetStats build() {
+            return new FleetStats(totalCars, totalEntries, totalFuelLiters, totalCost,
+                    averageConsumption, averagePricePerLiter, costPer100km);
+        }
+    }
+}
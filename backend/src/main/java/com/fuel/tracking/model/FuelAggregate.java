@@ -0,0 +1,121 @@
+package com.fuel.tracking.model;
+
+/**
+ * Running totals for a car's fuel history, updated as entries are appended.
+ *
+ * Odometer readings are non-decreasing on insert, so the append order is
+ * already the odometer order and every new entry closes at most one segment
+ * (previous odometer -> new odometer). That lets the stats be maintained in
+ * O(1) per entry instead of re-scanning the history on every read.
+ *
+ * Liters and cost are summed with Kahan compensation, like DoubleStream.sum(),
+ * so the totals match a full re-scan of the history.
+ */
+public class FuelAggregate {
+    private int entryCount;
+
+    private double totalLiters;
+    private double litersCompensation;
+
+    private double totalCost;
+    private double costCompensation;
+
+    private double consumptionSum; // Sum of segment consumptions (L/100km)
+    private int segmentCount;
+
+    private Integer lastOdometer;
+
+    public FuelAggregate() {
+    }
+
+    /**
+     * Resume from a previously captured state
+     */
+    public FuelAggregate(State state) {
+        this.entryCount = state.entryCount();
+        this.totalLiters = state.litersSum();
+        this.litersCompensation = state.litersCompensation();
+        this.totalCost = state.costSum();
+        this.costCompensation = state.costCompensation();
+        this.consumptionSum = state.consumptionSum();
+        this.segmentCount = state.segmentCount();
+        this.lastOdometer = state.lastOdometer();
+    }
+
+    public void add(double liters, double cost, int odometer) {
+        if (lastOdometer != null) {
+            double distance = odometer - lastOdometer;
+            // Only include valid segments (positive distance)
+            if (distance > 0) {
+                consumptionSum += (liters / distance) * 100;
+                segmentCount++;
+            }
+        }
+
+        double litersTerm = liters - litersCompensation;
+        double litersSum = totalLiters + litersTerm;
+        litersCompensation = (litersSum - totalLiters) - litersTerm;
+        totalLiters = litersSum;
+
+        double costTerm = cost - costCompensation;
+        double costSum = totalCost + costTerm;
+        costCompensation = (costSum - totalCost) - costTerm;
+        totalCost = costSum;
+
+        lastOdometer = odometer;
+        entryCount++;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public double getTotalLiters() {
+        return totalLiters - litersCompensation;
+    }
+
+    public double getTotalCost() {
+        return totalCost - costCompensation;
+    }
+
+    public double getConsumptionSum() {
+        return consumptionSum;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Average of segment consumptions in L/100km, 0 when no segment exists yet
+     */
+    public double getAverageConsumption() {
+        return segmentCount == 0 ? 0.0 : consumptionSum / segmentCount;
+    }
+
+    public Integer getLastOdometer() {
+        return lastOdometer;
+    }
+
+    /**
+     * Raw running sums, including the compensation terms, so an aggregate can
+     * be stored and resumed without losing precision
+     */
+    public State state() {
+        return new State(entryCount, totalLiters, litersCompensation, totalCost, costCompensation,
+                consumptionSum, segmentCount, lastOdometer);
+    }
+
+    public record State(int entryCount, double litersSum, double litersCompensation,
+            double costSum, double costCompensation, double consumptionSum,
+            int segmentCount, Integer lastOdometer) {
+
+        public double totalLiters() {
+            return litersSum - litersCompensation;
+        }
+
+        public double totalCost() {
+            return costSum - costCompensation;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.fuel.tracking.model;
+
+/**
+ * Read access to a run of fuel entries stored column by column, in odometer
+ * order. Implemented by in-heap history snapshots and by on-disk archives.
+ *
+ * Besides the entry fields, each position carries the running totals of the
+ * car's history up to and including that entry, so the totals over any range
+ * of positions are the difference of two reads.
+ */
+public interface FuelColumns {
+    int size();
+
+    long getId(int index);
+
+    double getLiters(int index);
+
+    double getPricePerLiter(int index);
+
+    int getOdometer(int index);
+
+    long getTimestampNanos(int index);
+
+    // Running totals up to and including the entry
+    double getLitersTotal(int index);
+
+    double getCostTotal(int index);
+
+    double getConsumptionTotal(int index); // Sum of segment consumptions, L/100km
+
+    int getSegmentTotal(int index);
+
+    /**
+     * Whether timestamps never decrease along the run, so that any time
+     * window covers one contiguous range of positions
+     */
+    default boolean isTimeOrdered() {
+        for (int i = 1; i < size(); i++) {
+            if (getTimestampNanos(i) < getTimestampNanos(i - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 
 public class FuelEntry {
     private Long id;
+    private Long carId;
     private Double liters;
     private Double pricePerLiter; // Price per liter
     private Integer odometer;
@@ -32,6 +33,14 @@ public class FuelEntry {
         this.id = id;
     }
 
+    public Long getCarId() {
+        return carId;
+    }
+
+    public void setCarId(Long carId) {
+        this.carId = carId;
+    }
+
     public Double getLiters() {
         return liters;
     }
@@ -85,6 +94,7 @@ public class FuelEntry {
     public String toString() {
         return "FuelEntry{" +
                 "id=" + id +
+                ", carId=" + carId +
                 ", liters=" + liters +
                 ", pricePerLiter=" + pricePerLiter +
                 ", odometer=" + odometer +
@@ -0,0 +1,581 @@
+package com.fuel.tracking.model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Columnar storage for a car's fuel entries.
+ *
+ * Each field is kept in its own primitive array (about 36 bytes per entry,
+ * against 150+ for a boxed FuelEntry), so scans over one column stay
+ * sequential in memory. FuelEntry objects are only materialized on request,
+ * at the API edge. Another 28 bytes per entry hold the running totals after
+ * each entry (prefix sums), which answer stats over any range of entries in
+ * constant time.
+ *
+ * A history may start from a read-only base (for example entries served from
+ * a memory-mapped archive); new entries are appended to in-heap columns after
+ * it. Entries are stored in append order, which is also odometer order since
+ * readings are validated to be non-decreasing, and id order since the
+ * repository draws each id from its generator while holding the car's lock.
+ *
+ * The in-heap columns are an append-only log of fixed-size chunks reached
+ * through a small directory. Growing the history adds a chunk (and, now and
+ * then, copies the directory of chunk references) instead of copying every
+ * entry appended so far. Only the first chunk starts small and grows by
+ * copying, up to the chunk size, so short histories stay small.
+ *
+ * Appends must be serialized by the caller (the repository holds a per-car
+ * lock), so slots are not claimed by CAS: each slot's running totals depend
+ * on the slot before it, and the odometer check must be atomic with the
+ * append anyway. Readers need no lock: a slot is written before the snapshot
+ * covering it is published through a volatile field, and is never written
+ * again, so a reader always sees a consistent entry count and aggregate,
+ * never a half-applied append.
+ *
+ * Every published snapshot carries a version drawn from one counter shared by
+ * all histories. A car's version therefore goes up on every change, and never
+ * repeats even when its history is rebuilt or replaced, so (car id, version)
+ * identifies one exact state of a car's entries.
+ */
+public class FuelHistory {
+    private static final int INITIAL_CAPACITY = 8;
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final FuelColumns base;
+    private final int baseSize;
+
+    // Writer side, guarded by the caller's lock
+    private Columns[] chunks = { new Columns(INITIAL_CAPACITY) };
+    private int chunkCount = 1;
+    private int size;
+    private int maxOdometer = -1;
+    private long lastTimestamp = Long.MIN_VALUE;
+    private boolean timeOrdered = true;
+    private final FuelAggregate aggregate;
+
+    // Reader side
+    private volatile Snapshot published;
+
+    public FuelHistory() {
+        this.base = null;
+        this.baseSize = 0;
+        this.aggregate = new FuelAggregate();
+        publish();
+    }
+
+    /**
+     * History continuing from existing entries, with the aggregate already
+     * computed over them
+     */
+    public FuelHistory(FuelColumns base, FuelAggregate.State baseAggregate) {
+        this.base = base;
+        this.baseSize = base.size();
+        this.size = baseSize;
+        this.aggregate = new FuelAggregate(baseAggregate);
+        if (baseAggregate.lastOdometer() != null) {
+            this.maxOdometer = baseAggregate.lastOdometer();
+        }
+        if (baseSize > 0) {
+            this.lastTimestamp = base.getTimestampNanos(baseSize - 1);
+            this.timeOrdered = base.isTimeOrdered();
+        }
+        publish();
+    }
+
+    public void append(FuelEntry fuelEntry) {
+        append(fuelEntry.getId(), fuelEntry.getLiters(), fuelEntry.getPricePerLiter(),
+                fuelEntry.getOdometer(), fuelEntry.getTimestamp());
+    }
+
+    public void append(Long id, double liters, double pricePerLiter, int odometer, LocalDateTime timestamp) {
+        int slot = size - baseSize;
+        Columns chunk = chunkForAppend(slot);
+        slot &= CHUNK_MASK;
+
+        chunk.ids[slot] = id != null ? id : 0L;
+        chunk.liters[slot] = liters;
+        chunk.pricesPerLiter[slot] = pricePerLiter;
+        chunk.odometers[slot] = odometer;
+        long timestampNanos = toEpochNanos(timestamp);
+        chunk.timestamps[slot] = timestampNanos;
+
+        aggregate.add(liters, liters * pricePerLiter, odometer);
+        chunk.litersTotals[slot] = aggregate.getTotalLiters();
+        chunk.costTotals[slot] = aggregate.getTotalCost();
+        chunk.consumptionTotals[slot] = aggregate.getConsumptionSum();
+        chunk.segmentTotals[slot] = aggregate.getSegmentCount();
+        size++;
+
+        // Entries normally arrive in time order; one that does not turns off binary search by time
+        if (timestampNanos < lastTimestamp) {
+            timeOrdered = false;
+        }
+        lastTimestamp = timestampNanos;
+
+        maxOdometer = Math.max(maxOdometer, odometer);
+        publish();
+    }
+
+    /**
+     * The chunk that takes the given slot, adding or growing one as needed.
+     * A chunk or directory that a published snapshot may read is replaced,
+     * never changed in place, except for writing slots past the published
+     * size.
+     */
+    private Columns chunkForAppend(int slot) {
+        int index = slot >>> CHUNK_SHIFT;
+        if (index == chunkCount) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount++] = new Columns(CHUNK_SIZE);
+        }
+        Columns chunk = chunks[index];
+        int offset = slot & CHUNK_MASK;
+        if (offset == chunk.capacity()) {
+            // Only the first chunk is ever short
+            chunk = chunk.grow(Math.min(offset * 2, CHUNK_SIZE));
+            chunks = chunks.clone();
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    private void publish() {
+        published = new Snapshot(base, baseSize, chunks, size, aggregate.state(), timeOrdered,
+                VERSIONS.incrementAndGet());
+    }
+
+    public int size() {
+        return published.size();
+    }
+
+    /**
+     * Version of the published entries, see the class comment
+     */
+    public long getVersion() {
+        return published.version();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Highest odometer reading appended so far, or null if there is none.
+     * Read by the car's writer to validate the next entry.
+     */
+    public Integer getMaxOdometer() {
+        return maxOdometer < 0 ? null : maxOdometer;
+    }
+
+    /**
+     * Aggregate over the entries published so far
+     */
+    public FuelAggregate getAggregate() {
+        return new FuelAggregate(published.aggregate());
+    }
+
+    /**
+     * Read-only view of the entries appended so far. Later appends never
+     * write below the captured size, and growing either adds a chunk or moves
+     * the history to a new directory, so the view stays valid while the
+     * history keeps growing.
+     */
+    public Snapshot snapshot() {
+        return published;
+    }
+
+    // Column accessors
+    public long getId(int index) {
+        return snapshot().getId(index);
+    }
+
+    public double getLiters(int index) {
+        return snapshot().getLiters(index);
+    }
+
+    public double getPricePerLiter(int index) {
+        return snapshot().getPricePerLiter(index);
+    }
+
+    public double getTotalCost(int index) {
+        return snapshot().getTotalCost(index);
+    }
+
+    public int getOdometer(int index) {
+        return snapshot().getOdometer(index);
+    }
+
+    public LocalDateTime getTimestamp(int index) {
+        return fromEpochNanos(snapshot().getTimestampNanos(index));
+    }
+
+    /**
+     * Materialize the entry at the given position
+     */
+    public FuelEntry getEntry(int index) {
+        return snapshot().getEntry(index);
+    }
+
+    /**
+     * Materialize all entries into a new list
+     */
+    public List<FuelEntry> toList() {
+        return snapshot().toList();
+    }
+
+    /**
+     * Nanoseconds since the epoch, UTC. Only times from 1677 to 2262 fit in a
+     * long; others throw ArithmeticException rather than wrap around.
+     */
+    public static long toEpochNanos(LocalDateTime timestamp) {
+        return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L),
+                timestamp.getNano());
+    }
+
+    public static LocalDateTime fromEpochNanos(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * One chunk: a fixed-capacity set of column arrays. Growing copies into a
+     * new instance instead of swapping arrays one by one, so a reader holding
+     * a Columns reference always sees a matching set of arrays.
+     */
+    private static final class Columns {
+        final long[] ids;
+        final double[] liters;
+        final double[] pricesPerLiter;
+        final int[] odometers;
+        final long[] timestamps; // Epoch nanos, UTC
+        final double[] litersTotals;
+        final double[] costTotals;
+        final double[] consumptionTotals;
+        final int[] segmentTotals;
+
+        Columns(int capacity) {
+            this.ids = new long[capacity];
+            this.liters = new double[capacity];
+            this.pricesPerLiter = new double[capacity];
+            this.odometers = new int[capacity];
+            this.timestamps = new long[capacity];
+            this.litersTotals = new double[capacity];
+            this.costTotals = new double[capacity];
+            this.consumptionTotals = new double[capacity];
+            this.segmentTotals = new int[capacity];
+        }
+
+        int capacity() {
+            return ids.length;
+        }
+
+        Columns grow(int capacity) {
+            Columns grown = new Columns(capacity);
+            int length = capacity();
+            System.arraycopy(ids, 0, grown.ids, 0, length);
+            System.arraycopy(liters, 0, grown.liters, 0, length);
+            System.arraycopy(pricesPerLiter, 0, grown.pricesPerLiter, 0, length);
+            System.arraycopy(odometers, 0, grown.odometers, 0, length);
+            System.arraycopy(timestamps, 0, grown.timestamps, 0, length);
+            System.arraycopy(litersTotals, 0, grown.litersTotals, 0, length);
+            System.arraycopy(costTotals, 0, grown.costTotals, 0, length);
+            System.arraycopy(consumptionTotals, 0, grown.consumptionTotals, 0, length);
+            System.arraycopy(segmentTotals, 0, grown.segmentTotals, 0, length);
+            return grown;
+        }
+    }
+
+    /**
+     * Totals over a range of entries
+     */
+    public record RangeTotals(int entryCount, double totalLiters, double totalCost,
+            double consumptionSum, int segmentCount) {
+
+        /**
+         * Average of segment consumptions in L/100km, 0 when the range has no segment
+         */
+        public double averageConsumption() {
+            return segmentCount == 0 ? 0.0 : consumptionSum / segmentCount;
+        }
+    }
+
+    /**
+     * Fixed-size view over the first entries of a history
+     */
+    public static final class Snapshot implements FuelColumns {
+        private final FuelColumns base;
+        private final int baseSize;
+        private final Columns[] chunks;
+        private final int size;
+        private final FuelAggregate.State aggregate;
+        private final boolean timeOrdered;
+        private final long version;
+
+        private Snapshot(FuelColumns base, int baseSize, Columns[] chunks, int size, FuelAggregate.State aggregate,
+                boolean timeOrdered, long version) {
+            this.base = base;
+            this.baseSize = baseSize;
+            this.chunks = chunks;
+            this.size = size;
+            this.aggregate = aggregate;
+            this.timeOrdered = timeOrdered;
+            this.version = version;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        /**
+         * Aggregate over exactly the entries in this snapshot
+         */
+        public FuelAggregate.State aggregate() {
+            return aggregate;
+        }
+
+        @Override
+        public long getId(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getId(index) : chunk(index).ids[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public double getLiters(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getLiters(index) : chunk(index).liters[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public double getPricePerLiter(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getPricePerLiter(index) : chunk(index).pricesPerLiter[(index - baseSize) & CHUNK_MASK];
+        }
+
+        public double getTotalCost(int index) {
+            return getLiters(index) * getPricePerLiter(index);
+        }
+
+        @Override
+        public int getOdometer(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getOdometer(index) : chunk(index).odometers[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public long getTimestampNanos(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getTimestampNanos(index) : chunk(index).timestamps[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public double getLitersTotal(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getLitersTotal(index) : chunk(index).litersTotals[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public double getCostTotal(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getCostTotal(index) : chunk(index).costTotals[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public double getConsumptionTotal(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getConsumptionTotal(index) : chunk(index).consumptionTotals[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public int getSegmentTotal(int index) {
+            checkIndex(index);
+            return index < baseSize ? base.getSegmentTotal(index) : chunk(index).segmentTotals[(index - baseSize) & CHUNK_MASK];
+        }
+
+        @Override
+        public boolean isTimeOrdered() {
+            return timeOrdered;
+        }
+
+        /**
+         * Totals over the entries at positions [from, to), from two reads of
+         * the running totals. A segment counts only when both of its entries
+         * are inside the range.
+         */
+        public RangeTotals rangeTotals(int from, int to) {
+            if (from < 0 || to > size || from > to) {
+                throw new IndexOutOfBoundsException(
+                        "Range [" + from + ", " + to + ") out of bounds for size " + size);
+            }
+            if (from == to) {
+                return new RangeTotals(0, 0.0, 0.0, 0.0, 0);
+            }
+            int last = to - 1;
+            return new RangeTotals(
+                    to - from,
+                    getLitersTotal(last) - (from > 0 ? getLitersTotal(from - 1) : 0.0),
+                    getCostTotal(last) - (from > 0 ? getCostTotal(from - 1) : 0.0),
+                    // Segments ending at from + 1 .. last
+                    getConsumptionTotal(last) - getConsumptionTotal(from),
+                    getSegmentTotal(last) - getSegmentTotal(from));
+        }
+
+        /**
+         * Position of the first entry with an odometer reading at or above
+         * the given one, or size if there is none
+         */
+        public int odometerLowerBound(long odometer) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getOdometer(middle) < odometer) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Position of the first entry at or after the given time, or size if
+         * there is none. Binary search, only meaningful when isTimeOrdered.
+         */
+        public int timestampLowerBound(long timestampNanos) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getTimestampNanos(middle) < timestampNanos) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Position of the first entry with an id at or above the given one,
+         * or size if there is none
+         */
+        public int idLowerBound(long id) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (getId(middle) < id) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Position of the entry with the given id, or -1. Binary search, as
+         * ids increase along the history.
+         */
+        public int indexOfId(long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long middleId = getId(middle);
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * indexOfId, trying a remembered position first. The hint may be
+         * stale or out of range; it is only used if the id is found there.
+         */
+        public int indexOfId(long id, int hint) {
+            if (hint >= 0 && hint < size && getId(hint) == id) {
+                return hint;
+            }
+            return indexOfId(id);
+        }
+
+        public FuelEntry getEntry(int index) {
+            FuelEntry fuelEntry = new FuelEntry(getLiters(index), getPricePerLiter(index), getOdometer(index));
+            fuelEntry.setId(getId(index));
+            fuelEntry.setTimestamp(fromEpochNanos(getTimestampNanos(index)));
+            return fuelEntry;
+        }
+
+        /**
+         * Read-only list over the entries of this snapshot, materializing
+         * each entry on access instead of copying the history up front.
+         * The list never changes, whatever is appended to the history later.
+         */
+        public List<FuelEntry> asList(Long carId) {
+            return new EntryList(this, carId);
+        }
+
+        public List<FuelEntry> toList() {
+            List<FuelEntry> fuelEntries = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                fuelEntries.add(getEntry(i));
+            }
+            return fuelEntries;
+        }
+
+        private Columns chunk(int index) {
+            return chunks[(index - baseSize) >>> CHUNK_SHIFT];
+        }
+
+        private void checkIndex(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+            }
+        }
+    }
+
+    private static final class EntryList extends AbstractList<FuelEntry> implements RandomAccess {
+        private final Snapshot snapshot;
+        private final Long carId;
+
+        EntryList(Snapshot snapshot, Long carId) {
+            this.snapshot = snapshot;
+            this.carId = carId;
+        }
+
+        @Override
+        public FuelEntry get(int index) {
+            FuelEntry fuelEntry = snapshot.getEntry(index);
+            fuelEntry.setCarId(carId);
+            return fuelEntry;
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetAggregates;
+import com.fuel.tracking.model.FuelAggregate;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Car repository served from a memory-mapped archive file.
+ *
+ * Startup maps the archive instead of deserializing it, then replays the
+ * write-ahead log records written since the archive, so it takes
+ * milliseconds whatever the size of the data. Cars are built from the mapped
+ * file on first access and cached; their histories read archived entries
+ * from the mapping and keep new entries in heap. A background merge
+ * periodically folds the in-heap changes into a fresh archive and drops the
+ * log segments it covers.
+ *
+ * Enabled with fuel.storage.mode=archive.
+ */
+@Repository
+@ConditionalOnProperty(name = "fuel.storage.mode", havingValue = "archive")
+public class ArchiveCarRepository implements CarRepository, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveCarRepository.class);
+
+    private static final String ARCHIVE_FILE = "cars.archive";
+
+    private final Path archivePath;
+    private final WriteAheadLog writeAheadLog;
+    private volatile CarArchive archive;
+
+    // Cars read from the archive or created since it was written, in id order
+    private final ConcurrentNavigableMap<Long, Car> loadedCars = new ConcurrentSkipListMap<>();
+    // Cars deleted since the archive was written, with the LSN of the deletion. Cars
+    // that were never archived are kept too, since a running merge may be archiving them.
+    private final Map<Long, Long> deletedCars = new ConcurrentHashMap<>();
+    // Car of each fuel entry added since the archive was written; older ones are in the archive's index
+    private volatile Map<Long, Long> carIdByFuelEntryId = new ConcurrentHashMap<>();
+    // Entries added before a merge in progress, until the merged archive is swapped in
+    private volatile Map<Long, Long> mergingCarIdByFuelEntryId = Map.of();
+
+    private final AtomicLong carIdGenerator = new AtomicLong(1);
+    private final AtomicLong fuelEntryIdGenerator = new AtomicLong(1);
+    private final FleetAggregates fleetAggregates = new FleetAggregates();
+
+    // Keeps the log in the same order as the changes applied to each car
+    private final StripedLocks carLocks = StripedLocks.forAvailableProcessors();
+    // Held shared while loading a car from the archive, exclusively while swapping archives
+    private final ReadWriteLock archiveLock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService merger;
+
+    public ArchiveCarRepository(
+            @Value("${fuel.storage.directory:data}") String directory,
+            @Value("${fuel.storage.wal.segment-size-bytes:67108864}") long segmentSizeBytes,
+            @Value("${fuel.storage.archive.merge-interval-seconds:300}") long mergeIntervalSeconds)
+            throws IOException {
+        this(Paths.get(directory), segmentSizeBytes, mergeIntervalSeconds);
+    }
+
+    ArchiveCarRepository(Path directory, long segmentSizeBytes, long mergeIntervalSeconds) throws IOException {
+        Files.createDirectories(directory);
+        this.archivePath = directory.resolve(ARCHIVE_FILE);
+        this.writeAheadLog = new WriteAheadLog(directory, segmentSizeBytes);
+
+        recover();
+        writeAheadLog.start();
+
+        merger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "archive-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (mergeIntervalSeconds > 0) {
+            merger.scheduleWithFixedDelay(this::mergeQuietly, mergeIntervalSeconds, mergeIntervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    private void recover() throws IOException {
+        long started = System.nanoTime();
+
+        archive = CarArchive.open(archivePath);
+        carIdGenerator.set(archive.getNextCarId());
+        fuelEntryIdGenerator.set(archive.getNextFuelEntryId());
+        archive.addGroupTotalsTo(fleetAggregates);
+
+        long[] replayed = new long[1];
+        long lastLsn = writeAheadLog.recover(archive.getLsn(), (lsn, type, payload) -> {
+            replay(lsn, type, payload);
+            replayed[0]++;
+        });
+
+        log.info("Opened archive with {} cars at LSN {} and replayed {} log records up to LSN {} in {} ms",
+                archive.size(), archive.getLsn(), replayed[0], lastLsn,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void replay(long lsn, byte type, ByteBuffer payload) throws IOException {
+        DataInputStream in = WalRecords.reader(payload);
+        switch (type) {
+            case WalRecords.SAVE_CAR -> {
+                Car car = WalRecords.decodeCar(in);
+                Optional<Car> existing = findById(car.getId());
+                if (existing.isPresent()) {
+                    // Re-saving a car keeps its history, only the details change
+                    existing.get().setBrand(car.getBrand());
+                    existing.get().setModel(car.getModel());
+                    existing.get().setYear(car.getYear());
+                } else {
+                    applySave(car);
+                }
+            }
+            case WalRecords.ADD_FUEL_ENTRY -> {
+                long carId = in.readLong();
+                applyFuelEntry(carId, WalRecords.decodeFuelEntry(in));
+            }
+            case WalRecords.DELETE_CAR -> applyDelete(in.readLong(), lsn);
+            case WalRecords.UPDATE_FUEL_ENTRY -> {
+                long carId = in.readLong();
+                applyFuelEntryUpdate(carId, WalRecords.decodeFuelEntry(in));
+            }
+            case WalRecords.DELETE_FUEL_ENTRY -> applyFuelEntryDelete(in.readLong(), in.readLong());
+            default -> throw new IOException("Unknown write-ahead log record type " + type);
+        }
+    }
+
+    /**
+     * Logs the car before applying it, so a failed append changes nothing.
+     * Saving cannot fail once logged; writes that are checked as they are
+     * applied are undone instead if the append fails.
+     */
+    @Override
+    public Car save(Car car) {
+        long lsn;
+        if (car.getId() == null) {
+            car.setId(carIdGenerator.getAndIncrement());
+        }
+        Lock lock = carLocks.lockFor(car.getId());
+        lock.lock();
+        try {
+            lsn = writeAheadLog.append(WalRecords.SAVE_CAR, WalRecords.encodeCar(car));
+            applySave(car);
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+        return car;
+    }
+
+    /**
+     * Reserves the new ids with one update of the generator, logs every car,
+     * then waits once for the fsync covering the last one
+     */
+    @Override
+    public List<Car> saveAll(List<Car> cars) {
+        long lsn = -1;
+        long nextId = carIdGenerator.getAndAdd(cars.stream().filter(car -> car.getId() == null).count());
+        for (Car car : cars) {
+            if (car.getId() == null) {
+                car.setId(nextId++);
+            }
+            Lock lock = carLocks.lockFor(car.getId());
+            lock.lock();
+            try {
+                lsn = writeAheadLog.append(WalRecords.SAVE_CAR, WalRecords.encodeCar(car));
+                applySave(car);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (lsn >= 0) {
+            writeAheadLog.awaitDurable(lsn);
+        }
+        return cars;
+    }
+
+    @Override
+    public Optional<Car> findById(Long id) {
+        Car car = loadedCars.get(id);
+        if (car != null) {
+            return Optional.of(car);
+        }
+        if (deletedCars.containsKey(id)) {
+            return Optional.empty();
+        }
+
+        archiveLock.readLock().lock();
+        try {
+            CarArchive current = archive;
+            int index = current.indexOf(id);
+            if (index < 0 || deletedCars.containsKey(id)) {
+                return Optional.ofNullable(loadedCars.get(id));
+            }
+            return Optional.of(loadedCars.computeIfAbsent(id, key -> current.loadCar(index)));
+        } finally {
+            archiveLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * All cars in id order. Archived cars that are not cached are built for
+     * the call only, so listing does not pull the whole archive into heap.
+     */
+    @Override
+    public List<Car> findAll() {
+        List<Car> cars = new ArrayList<>();
+        Map<Long, Car> notArchived = new HashMap<>(loadedCars);
+
+        archiveLock.readLock().lock();
+        try {
+            CarArchive current = archive;
+            for (int i = 0; i < current.size(); i++) {
+                long id = current.carIdAt(i);
+                Car loaded = notArchived.remove(id);
+                if (loaded != null) {
+                    cars.add(loaded);
+                } else if (!deletedCars.containsKey(id)) {
+                    cars.add(current.loadCar(i));
+                }
+            }
+        } finally {
+            archiveLock.readLock().unlock();
+        }
+
+        if (!notArchived.isEmpty()) {
+            cars.addAll(notArchived.values());
+            cars.sort(Comparator.comparing(Car::getId));
+        }
+        return cars;
+    }
+
+    /**
+     * Walks the archive's car table and the loaded cars side by side from the
+     * cursor, both being in id order. As in findAll, archived cars that are
+     * not cached are built for the call only.
+     */
+    @Override
+    public List<Car> findPage(Long after, int limit) {
+        List<Car> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Car> loaded = (after == null ? loadedCars : loadedCars.tailMap(after, false))
+                .values().iterator();
+        Car nextLoaded = loaded.hasNext() ? loaded.next() : null;
+
+        archiveLock.readLock().lock();
+        try {
+            CarArchive current = archive;
+            int index = after == null ? 0 : current.indexAfter(after);
+            while (page.size() < limit && (index < current.size() || nextLoaded != null)) {
+                long archivedId = index < current.size() ? current.carIdAt(index) : Long.MAX_VALUE;
+                if (nextLoaded != null && nextLoaded.getId() <= archivedId) {
+                    page.add(nextLoaded);
+                    if (nextLoaded.getId() == archivedId) {
+                        index++;
+                    }
+                    nextLoaded = loaded.hasNext() ? loaded.next() : null;
+                } else {
+                    if (!deletedCars.containsKey(archivedId)) {
+                        page.add(current.loadCar(index));
+                    }
+                    index++;
+                }
+            }
+        } finally {
+            archiveLock.readLock().unlock();
+        }
+        return page;
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        if (loadedCars.containsKey(id)) {
+            return true;
+        }
+        return !deletedCars.containsKey(id) && archive.indexOf(id) >= 0;
+    }
+
+    @Override
+    public void delete(Long id) {
+        long lsn;
+        Lock lock = carLocks.lockFor(id);
+        lock.lock();
+        try {
+            lsn = writeAheadLog.append(WalRecords.DELETE_CAR, WalRecords.encodeCarId(id));
+            applyDelete(id, lsn);
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+    }
+
+    /**
+     * The odometer check and the append happen under the car's lock, so
+     * concurrent writers to one car cannot both pass the check
+     */
+    @Override
+    public FuelEntry addFuelEntryToCar(Long carId, FuelEntry fuelEntry) {
+        long lsn;
+        Lock lock = carLocks.lockFor(carId);
+        lock.lock();
+        try {
+            fuelEntry.setId(fuelEntryIdGenerator.getAndIncrement());
+            applyFuelEntry(carId, fuelEntry);
+            try {
+                lsn = writeAheadLog.append(WalRecords.ADD_FUEL_ENTRY, WalRecords.encodeFuelEntry(carId, fuelEntry));
+            } catch (RuntimeException e) {
+                applyFuelEntryDelete(carId, fuelEntry.getId());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+        return fuelEntry;
+    }
+
+    /**
+     * Appends and logs each entry under one hold of the car's lock, then
+     * waits once for the fsync covering the last of them
+     */
+    @Override
+    public List<String> addFuelEntriesToCar(Long carId, List<FuelEntry> fuelEntries) {
+        List<String> errors = new ArrayList<>(fuelEntries.size());
+        awaitDurable(appendFuelEntries(carId, fuelEntries, errors));
+        return errors;
+    }
+
+    @Override
+    public Map<Long, List<String>> addFuelEntriesToCars(Map<Long, List<FuelEntry>> fuelEntriesByCar) {
+        Map<Long, List<String>> errorsByCar = new LinkedHashMap<>();
+        long lsn = -1;
+        for (Map.Entry<Long, List<FuelEntry>> car : fuelEntriesByCar.entrySet()) {
+            List<String> errors = new ArrayList<>(car.getValue().size());
+            try {
+                lsn = Math.max(lsn, appendFuelEntries(car.getKey(), car.getValue(), errors));
+            } catch (IllegalArgumentException e) {
+                errors = Collections.nCopies(car.getValue().size(), e.getMessage());
+            }
+            errorsByCar.put(car.getKey(), errors);
+        }
+        awaitDurable(lsn);
+        return errorsByCar;
+    }
+
+    /**
+     * @return the LSN of the last record written, or -1 if none was
+     */
+    private long appendFuelEntries(Long carId, List<FuelEntry> fuelEntries, List<String> errors) {
+        long lsn = -1;
+        Lock lock = carLocks.lockFor(carId);
+        lock.lock();
+        try {
+            getCar(carId);
+            for (FuelEntry fuelEntry : fuelEntries) {
+                fuelEntry.setId(fuelEntryIdGenerator.getAndIncrement());
+                try {
+                    applyFuelEntry(carId, fuelEntry);
+                } catch (IllegalArgumentException e) {
+                    fuelEntry.setId(null);
+                    errors.add(e.getMessage());
+                    continue;
+                }
+                try {
+                    lsn = writeAheadLog.append(WalRecords.ADD_FUEL_ENTRY,
+                            WalRecords.encodeFuelEntry(carId, fuelEntry));
+                } catch (RuntimeException e) {
+                    // Entries before this one are logged; later ones were not applied yet
+                    applyFuelEntryDelete(carId, fuelEntry.getId());
+                    throw e;
+                }
+                errors.add(null);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return lsn;
+    }
+
+    private void awaitDurable(long lsn) {
+        if (lsn >= 0) {
+            writeAheadLog.awaitDurable(lsn);
+        }
+    }
+
+    @Override
+    public List<FuelEntry> getFuelEntriesForCar(Long carId) {
+        Car car = findById(carId)
+                .orElseThrow(() -> new IllegalArgumentException("Car with id " + carId + " not found"));
+        return car.getFuelEntries();
+    }
+
+    @Override
+    public Optional<Long> findCarIdByFuelEntryId(Long fuelEntryId) {
+        Long carId = carIdByFuelEntryId.get(fuelEntryId);
+        if (carId == null) {
+            carId = mergingCarIdByFuelEntryId.get(fuelEntryId);
+        }
+        if (carId == null) {
+            long archivedCarId = archive.carIdOfFuelEntry(fuelEntryId);
+            carId = archivedCarId < 0 ? null : archivedCarId;
+        }
+        return Optional.ofNullable(carId);
+    }
+
+    @Override
+    public FuelEntry updateFuelEntry(Long carId, FuelEntry fuelEntry) {
+        long lsn;
+        Lock lock = carLocks.lockFor(carId);
+        lock.lock();
+        try {
+            Optional<FuelEntry> previous = getCar(carId).findFuelEntry(fuelEntry.getId());
+            applyFuelEntryUpdate(carId, fuelEntry);
+            try {
+                lsn = writeAheadLog.append(WalRecords.UPDATE_FUEL_ENTRY,
+                        WalRecords.encodeFuelEntry(carId, fuelEntry));
+            } catch (RuntimeException e) {
+                // The update succeeded, so the entry was in this car before it
+                applyFuelEntryUpdate(carId, previous.orElseThrow());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+        return fuelEntry;
+    }
+
+    @Override
+    public void deleteFuelEntry(Long carId, Long fuelEntryId) {
+        long lsn;
+        Lock lock = carLocks.lockFor(carId);
+        lock.lock();
+        try {
+            if (getCar(carId).findFuelEntry(fuelEntryId).isEmpty()) {
+                throw new IllegalArgumentException(
+                        "Fuel entry with id " + fuelEntryId + " not found for car " + carId);
+            }
+            lsn = writeAheadLog.append(WalRecords.DELETE_FUEL_ENTRY, WalRecords.encodeFuelEntryId(carId, fuelEntryId));
+            applyFuelEntryDelete(carId, fuelEntryId);
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+    }
+
+    @Override
+    public FleetAggregates getFleetAggregates() {
+        return fleetAggregates;
+    }
+
+    private static FuelAggregate.State aggregateOf(Car car) {
+        return car != null ? car.getFuelHistory().snapshot().aggregate() : null;
+    }
+
+    private Car getCar(Long carId) {
+        return findById(carId)
+                .orElseThrow(() -> new IllegalArgumentException("Car with id " + carId + " not found"));
+    }
+
+    private void applySave(Car car) {
+        Car previous = findById(car.getId()).orElse(null);
+        FuelAggregate.State before = aggregateOf(previous);
+        loadedCars.put(car.getId(), car);
+        deletedCars.remove(car.getId());
+        carIdGenerator.accumulateAndGet(car.getId() + 1, Math::max);
+        fleetAggregates.replace(previous, before, car, aggregateOf(car));
+
+        FuelHistory.Snapshot history = car.getFuelHistory().snapshot();
+        for (int i = 0; i < history.size(); i++) {
+            carIdByFuelEntryId.put(history.getId(i), car.getId());
+        }
+    }
+
+    private void applyFuelEntry(Long carId, FuelEntry fuelEntry) {
+        Car car = getCar(carId);
+        FuelAggregate.State before = aggregateOf(car);
+        car.addFuelEntry(fuelEntry);
+        fleetAggregates.replace(car, before, aggregateOf(car));
+        fuelEntry.setCarId(carId);
+        carIdByFuelEntryId.put(fuelEntry.getId(), carId);
+        fuelEntryIdGenerator.accumulateAndGet(fuelEntry.getId() + 1, Math::max);
+    }
+
+    private void applyFuelEntryUpdate(Long carId, FuelEntry fuelEntry) {
+        Car car = getCar(carId);
+        FuelAggregate.State before = aggregateOf(car);
+        if (!car.replaceFuelEntry(fuelEntry)) {
+            throw new IllegalArgumentException(
+                    "Fuel entry with id " + fuelEntry.getId() + " not found for car " + carId);
+        }
+        fleetAggregates.replace(car, before, aggregateOf(car));
+        fuelEntry.setCarId(carId);
+    }
+
+    private void applyFuelEntryDelete(Long carId, Long fuelEntryId) {
+        Car car = getCar(carId);
+        FuelAggregate.State before = aggregateOf(car);
+        if (!car.removeFuelEntry(fuelEntryId)) {
+            throw new IllegalArgumentException("Fuel entry with id " + fuelEntryId + " not found for car " + carId);
+        }
+        fleetAggregates.replace(car, before, aggregateOf(car));
+        // An archived id stays in the archive's index until the next merge;
+        // lookups check the car's history, so the stale hint is harmless
+        carIdByFuelEntryId.remove(fuelEntryId);
+    }
+
+    private void applyDelete(Long id, long lsn) {
+        findById(id).ifPresent(car -> fleetAggregates.replace(car, aggregateOf(car), null));
+        loadedCars.remove(id);
+        deletedCars.put(id, lsn);
+    }
+
+    /**
+     * Fold everything changed since the last archive into a new one. The cut
+     * is captured with all writers blocked; the file is written while writes
+     * carry on, and entries appended meanwhile are carried over to the new
+     * archive's cars when it is swapped in.
+     */
+    public void merge() throws IOException {
+        long lsn;
+        long nextCarId;
+        long nextFuelEntryId;
+        List<CarArchive.Entry> entries = new ArrayList<>();
+        Map<Long, CapturedCar> capturedCars = new HashMap<>();
+
+        carLocks.lockAll();
+        try {
+            CarArchive current = archive;
+            lsn = writeAheadLog.getLastLsn();
+            if (lsn == current.getLsn()) {
+                return; // Nothing changed since the archive was written
+            }
+
+            for (int i = 0; i < current.size(); i++) {
+                long id = current.carIdAt(i);
+                if (!loadedCars.containsKey(id) && !deletedCars.containsKey(id)) {
+                    entries.add(current.entry(i));
+                }
+            }
+            for (Car car : loadedCars.values()) {
+                FuelHistory history = car.getFuelHistory();
+                FuelHistory.Snapshot captured = history.snapshot();
+                entries.add(new CarArchive.Entry(car, captured, captured.aggregate()));
+                capturedCars.put(car.getId(), new CapturedCar(car, history, captured.size()));
+            }
+            nextCarId = carIdGenerator.get();
+            nextFuelEntryId = fuelEntryIdGenerator.get();
+            // Left over if the previous merge failed
+            carIdByFuelEntryId.putAll(mergingCarIdByFuelEntryId);
+            mergingCarIdByFuelEntryId = carIdByFuelEntryId;
+            carIdByFuelEntryId = new ConcurrentHashMap<>();
+        } finally {
+            carLocks.unlockAll();
+        }
+        entries.sort(Comparator.comparing(entry -> entry.car().getId()));
+
+        // The archive replaces the log records it covers, so they must be on disk first
+        writeAheadLog.awaitDurable(lsn);
+        CarArchive.write(archivePath, lsn, nextCarId, nextFuelEntryId, entries);
+        CarArchive merged = CarArchive.open(archivePath);
+
+        carLocks.lockAll();
+        archiveLock.writeLock().lock();
+        try {
+            for (CapturedCar captured : capturedCars.values()) {
+                Car car = loadedCars.get(captured.car().getId());
+                if (car != captured.car() || car.getFuelHistory() != captured.history()) {
+                    continue; // Deleted, replaced or had entries edited since the capture
+                }
+                int capturedSize = captured.size();
+                if (car.getFuelEntryCount() == capturedSize) {
+                    // Fully archived; reloaded from the new file on next access
+                    loadedCars.remove(car.getId());
+                    continue;
+                }
+                Car reloaded = merged.loadCar(merged.indexOf(car.getId()));
+                FuelHistory.Snapshot history = car.getFuelHistory().snapshot();
+                for (int i = capturedSize; i < history.size(); i++) {
+                    reloaded.addFuelEntry(history.getEntry(i));
+                }
+                loadedCars.put(car.getId(), reloaded);
+            }
+            // Cars deleted after the cut are in the merged archive, so their deletions stay
+            deletedCars.values().removeIf(deletionLsn -> deletionLsn <= lsn);
+            archive = merged;
+            mergingCarIdByFuelEntryId = Map.of();
+        } finally {
+            archiveLock.writeLock().unlock();
+            carLocks.unlockAll();
+        }
+
+        writeAheadLog.deleteSegmentsUpTo(lsn);
+        log.debug("Merged {} cars into archive at LSN {}", entries.size(), lsn);
+    }
+
+    /**
+     * A car as captured for a merge: the history object it had, and how many
+     * of its entries went into the archive
+     */
+    private record CapturedCar(Car car, FuelHistory history, int size) {
+    }
+
+    private void mergeQuietly() {
+        try {
+            merge();
+        } catch (Exception e) {
+            log.error("Archive merge failed", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            merge();
+        } finally {
+            writeAheadLog.close();
+        }
+    }
+}
@@ -0,0 +1,626 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetAggregate;
+import com.fuel.tracking.model.FleetAggregates;
+import com.fuel.tracking.model.FuelAggregate;
+import com.fuel.tracking.model.FuelColumns;
+import com.fuel.tracking.model.FuelHistory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Read-optimized car store file, served through memory mapping.
+ *
+ * Layout (big-endian):
+ * <pre>
+ * header      magic, version, lsn, next ids, car count, entry count, string bytes,
+ *             group count
+ * car table   one fixed-size record per car, sorted by id: metadata, position
+ *             of its entries in the columns, its stored fuel aggregate and flags
+ * columns     ids | liters | price per liter | odometer | epoch-nano timestamps |
+ *             running liters | running cost | running consumption | running
+ *             segment count, each column holding every car's entries back to back
+ * entry index (fuel entry id, car position) pairs sorted by fuel entry id
+ * groups      fleet totals per (brand, model, year), as FleetAggregates keeps them
+ * strings     deduplicated brand/model names, length-prefixed UTF-8
+ * </pre>
+ *
+ * Opening maps the regions without reading them, so it takes the same time
+ * for any file size. Lookups binary-search the car table or the entry index,
+ * stats come from the stored aggregate and histories are read from the
+ * mapped columns on demand. Fleet totals are restored from the groups, in
+ * time proportional to the number of groups. Each region is limited to 2 GB, which caps an
+ * archive at about 178 million entries.
+ */
+final class CarArchive {
+
+    private static final int MAGIC = 0x46554c41; // "FULA"
+    private static final int FORMAT_VERSION = 5;
+    private static final int HEADER_SIZE = 64;
+    private static final int CAR_RECORD_SIZE = 96;
+    private static final int ENTRY_INDEX_RECORD_SIZE = 12; // Fuel entry id, car position
+    private static final int GROUP_RECORD_SIZE = 64;
+
+    // Car record field offsets
+    private static final int CAR_ID = 0;
+    private static final int CAR_CREATED_AT = 8;
+    private static final int CAR_YEAR = 16;
+    private static final int CAR_BRAND = 20;
+    private static final int CAR_MODEL = 24;
+    private static final int CAR_ENTRY_COUNT = 28;
+    private static final int CAR_ENTRY_START = 32;
+    private static final int CAR_LITERS_SUM = 40;
+    private static final int CAR_LITERS_COMPENSATION = 48;
+    private static final int CAR_COST_SUM = 56;
+    private static final int CAR_COST_COMPENSATION = 64;
+    private static final int CAR_CONSUMPTION_SUM = 72;
+    private static final int CAR_SEGMENT_COUNT = 80;
+    private static final int CAR_LAST_ODOMETER = 84; // -1 when the car has no entries
+    private static final int CAR_FLAGS = 88;
+
+    // Group record field offsets; sums are in millionths, as FleetAggregate holds them
+    private static final int GROUP_BRAND = 0;
+    private static final int GROUP_MODEL = 4;
+    private static final int GROUP_YEAR = 8;
+    private static final int GROUP_CAR_COUNT = 16;
+    private static final int GROUP_ENTRY_COUNT = 24;
+    private static final int GROUP_SEGMENT_COUNT = 32;
+    private static final int GROUP_LITERS = 40;
+    private static final int GROUP_COST = 48;
+    private static final int GROUP_CONSUMPTION = 56;
+
+    // Car flags
+    private static final int TIME_ORDERED = 1;
+
+    /**
+     * A car to write, with its history and the aggregate over that history
+     */
+    record Entry(Car car, FuelColumns history, FuelAggregate.State aggregate) {
+    }
+
+    private final long lsn;
+    private final long nextCarId;
+    private final long nextFuelEntryId;
+    private final int carCount;
+
+    private final ByteBuffer cars;
+    private final ByteBuffer ids;
+    private final ByteBuffer liters;
+    private final ByteBuffer prices;
+    private final ByteBuffer odometers;
+    private final ByteBuffer timestamps;
+    private final ByteBuffer litersTotals;
+    private final ByteBuffer costTotals;
+    private final ByteBuffer consumptionTotals;
+    private final ByteBuffer segmentTotals;
+    private final ByteBuffer entryIndex;
+    private final ByteBuffer groups;
+    private final ByteBuffer strings;
+
+    private CarArchive(long lsn, long nextCarId, long nextFuelEntryId, int carCount, ByteBuffer cars,
+            ByteBuffer ids, ByteBuffer liters, ByteBuffer prices, ByteBuffer odometers,
+            ByteBuffer timestamps, ByteBuffer litersTotals, ByteBuffer costTotals, ByteBuffer consumptionTotals,
+            ByteBuffer segmentTotals, ByteBuffer entryIndex, ByteBuffer groups, ByteBuffer strings) {
+        this.lsn = lsn;
+        this.nextCarId = nextCarId;
+        this.nextFuelEntryId = nextFuelEntryId;
+        this.carCount = carCount;
+        this.cars = cars;
+        this.ids = ids;
+        this.liters = liters;
+        this.prices = prices;
+        this.odometers = odometers;
+        this.timestamps = timestamps;
+        this.litersTotals = litersTotals;
+        this.costTotals = costTotals;
+        this.consumptionTotals = consumptionTotals;
+        this.segmentTotals = segmentTotals;
+        this.entryIndex = entryIndex;
+        this.groups = groups;
+        this.strings = strings;
+    }
+
+    static CarArchive empty() {
+        ByteBuffer none = ByteBuffer.allocate(0);
+        return new CarArchive(0, 1, 1, 0, none, none, none, none, none, none, none, none, none, none, none, none, none);
+    }
+
+    /**
+     * Map an archive file, or return an empty archive if there is none yet
+     */
+    static CarArchive open(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return empty();
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Archive " + path + " is truncated");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+                throw new IOException(path + " is not a car archive");
+            }
+            long lsn = header.getLong();
+            long nextCarId = header.getLong();
+            long nextFuelEntryId = header.getLong();
+            int carCount = header.getInt();
+            header.getInt(); // Padding
+            long entryCount = header.getLong();
+            long stringBytes = header.getLong();
+            int groupCount = header.getInt();
+
+            long carsOffset = HEADER_SIZE;
+            long idsOffset = carsOffset + (long) carCount * CAR_RECORD_SIZE;
+            long litersOffset = idsOffset + entryCount * Long.BYTES;
+            long pricesOffset = litersOffset + entryCount * Double.BYTES;
+            long odometersOffset = pricesOffset + entryCount * Double.BYTES;
+            long timestampsOffset = odometersOffset + entryCount * Integer.BYTES;
+            long litersTotalsOffset = timestampsOffset + entryCount * Long.BYTES;
+            long costTotalsOffset = litersTotalsOffset + entryCount * Double.BYTES;
+            long consumptionTotalsOffset = costTotalsOffset + entryCount * Double.BYTES;
+            long segmentTotalsOffset = consumptionTotalsOffset + entryCount * Double.BYTES;
+            long entryIndexOffset = segmentTotalsOffset + entryCount * Integer.BYTES;
+            long groupsOffset = entryIndexOffset + entryCount * ENTRY_INDEX_RECORD_SIZE;
+            long stringsOffset = groupsOffset + (long) groupCount * GROUP_RECORD_SIZE;
+            if (stringsOffset + stringBytes != fileSize) {
+                throw new IOException("Archive " + path + " has an unexpected size");
+            }
+
+            return new CarArchive(lsn, nextCarId, nextFuelEntryId, carCount,
+                    map(channel, carsOffset, idsOffset),
+                    map(channel, idsOffset, litersOffset),
+                    map(channel, litersOffset, pricesOffset),
+                    map(channel, pricesOffset, odometersOffset),
+                    map(channel, odometersOffset, timestampsOffset),
+                    map(channel, timestampsOffset, litersTotalsOffset),
+                    map(channel, litersTotalsOffset, costTotalsOffset),
+                    map(channel, costTotalsOffset, consumptionTotalsOffset),
+                    map(channel, consumptionTotalsOffset, segmentTotalsOffset),
+                    map(channel, segmentTotalsOffset, entryIndexOffset),
+                    map(channel, entryIndexOffset, groupsOffset),
+                    map(channel, groupsOffset, stringsOffset),
+                    map(channel, stringsOffset, fileSize));
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long from, long to) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+
+    /**
+     * LSN of the last write-ahead log record included in this archive
+     */
+    long getLsn() {
+        return lsn;
+    }
+
+    long getNextCarId() {
+        return nextCarId;
+    }
+
+    long getNextFuelEntryId() {
+        return nextFuelEntryId;
+    }
+
+    int size() {
+        return carCount;
+    }
+
+    long carIdAt(int index) {
+        return cars.getLong(index * CAR_RECORD_SIZE + CAR_ID);
+    }
+
+    /**
+     * Position of a car in the car table, or -1 if it is not archived
+     */
+    int indexOf(long carId) {
+        int low = 0;
+        int high = carCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = carIdAt(middle);
+            if (middleId < carId) {
+                low = middle + 1;
+            } else if (middleId > carId) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Position of the first archived car with an id greater than the given one
+     */
+    int indexAfter(long carId) {
+        int low = 0;
+        int high = carCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (carIdAt(middle) <= carId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Id of the car holding the given fuel entry, or -1 if it is not archived
+     */
+    long carIdOfFuelEntry(long fuelEntryId) {
+        int low = 0;
+        int high = entryIndex.capacity() / ENTRY_INDEX_RECORD_SIZE - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = entryIndex.getLong(middle * ENTRY_INDEX_RECORD_SIZE);
+            if (middleId < fuelEntryId) {
+                low = middle + 1;
+            } else if (middleId > fuelEntryId) {
+                high = middle - 1;
+            } else {
+                return carIdAt(entryIndex.getInt(middle * ENTRY_INDEX_RECORD_SIZE + Long.BYTES));
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Build the car at the given position. Its history reads entries from the
+     * mapped columns and keeps any new entries in heap.
+     */
+    Car loadCar(int index) {
+        Car car = loadDetails(index);
+        car.setFuelHistory(new FuelHistory(columns(index), aggregateAt(index)));
+        return car;
+    }
+
+    Entry entry(int index) {
+        return new Entry(loadDetails(index), columns(index), aggregateAt(index));
+    }
+
+    private Car loadDetails(int index) {
+        int record = index * CAR_RECORD_SIZE;
+        Car car = new Car();
+        car.setId(cars.getLong(record + CAR_ID));
+        car.setCreatedAt(FuelHistory.fromEpochNanos(cars.getLong(record + CAR_CREATED_AT)));
+        car.setYear(cars.getInt(record + CAR_YEAR));
+        car.setBrand(readString(cars.getInt(record + CAR_BRAND)));
+        car.setModel(readString(cars.getInt(record + CAR_MODEL)));
+        return car;
+    }
+
+    private FuelColumns columns(int index) {
+        int record = index * CAR_RECORD_SIZE;
+        return new ArchivedColumns((int) cars.getLong(record + CAR_ENTRY_START), cars.getInt(record + CAR_ENTRY_COUNT),
+                (cars.getInt(record + CAR_FLAGS) & TIME_ORDERED) != 0);
+    }
+
+    /**
+     * Stored aggregate of the car at the given position
+     */
+    FuelAggregate.State aggregateAt(int index) {
+        int record = index * CAR_RECORD_SIZE;
+        int lastOdometer = cars.getInt(record + CAR_LAST_ODOMETER);
+        return new FuelAggregate.State(
+                cars.getInt(record + CAR_ENTRY_COUNT),
+                cars.getDouble(record + CAR_LITERS_SUM),
+                cars.getDouble(record + CAR_LITERS_COMPENSATION),
+                cars.getDouble(record + CAR_COST_SUM),
+                cars.getDouble(record + CAR_COST_COMPENSATION),
+                cars.getDouble(record + CAR_CONSUMPTION_SUM),
+                cars.getInt(record + CAR_SEGMENT_COUNT),
+                lastOdometer < 0 ? null : lastOdometer);
+    }
+
+    /**
+     * Add the stored fleet totals of every group to the given aggregates
+     */
+    void addGroupTotalsTo(FleetAggregates fleetAggregates) {
+        for (int record = 0; record < groups.capacity(); record += GROUP_RECORD_SIZE) {
+            FleetAggregates.Group group = new FleetAggregates.Group(readString(groups.getInt(record + GROUP_BRAND)),
+                    readString(groups.getInt(record + GROUP_MODEL)), groups.getInt(record + GROUP_YEAR));
+            fleetAggregates.add(group, new FleetAggregate.Totals(
+                    groups.getLong(record + GROUP_CAR_COUNT),
+                    groups.getLong(record + GROUP_ENTRY_COUNT),
+                    groups.getLong(record + GROUP_SEGMENT_COUNT),
+                    groups.getLong(record + GROUP_LITERS),
+                    groups.getLong(record + GROUP_COST),
+                    groups.getLong(record + GROUP_CONSUMPTION)));
+        }
+    }
+
+    private String readString(int offset) {
+        int length = strings.getInt(offset);
+        byte[] bytes = new byte[length];
+        strings.get(offset + Integer.BYTES, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One car's run of entries inside the mapped columns
+     */
+    private final class ArchivedColumns implements FuelColumns {
+        private final int start;
+        private final int size;
+        private final boolean timeOrdered;
+
+        ArchivedColumns(int start, int size, boolean timeOrdered) {
+            this.start = start;
+            this.size = size;
+            this.timeOrdered = timeOrdered;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public double getLitersTotal(int index) {
+            return litersTotals.getDouble((start + index) * Double.BYTES);
+        }
+
+        @Override
+        public double getCostTotal(int index) {
+            return costTotals.getDouble((start + index) * Double.BYTES);
+        }
+
+        @Override
+        public double getConsumptionTotal(int index) {
+            return consumptionTotals.getDouble((start + index) * Double.BYTES);
+        }
+
+        @Override
+        public int getSegmentTotal(int index) {
+            return segmentTotals.getInt((start + index) * Integer.BYTES);
+        }
+
+        @Override
+        public boolean isTimeOrdered() {
+            return timeOrdered;
+        }
+
+        @Override
+        public long getId(int index) {
+            return ids.getLong((start + index) * Long.BYTES);
+        }
+
+        @Override
+        public double getLiters(int index) {
+            return liters.getDouble((start + index) * Double.BYTES);
+        }
+
+        @Override
+        public double getPricePerLiter(int index) {
+            return prices.getDouble((start + index) * Double.BYTES);
+        }
+
+        @Override
+        public int getOdometer(int index) {
+            return odometers.getInt((start + index) * Integer.BYTES);
+        }
+
+        @Override
+        public long getTimestampNanos(int index) {
+            return timestamps.getLong((start + index) * Long.BYTES);
+        }
+    }
+
+    /**
+     * Write a new archive next to the target and move it into place. Entries
+     * must be sorted by car id.
+     */
+    static void write(Path target, long lsn, long nextCarId, long nextFuelEntryId, List<Entry> entries)
+            throws IOException {
+        long entryCount = 0;
+        Map<String, Integer> stringOffsets = new LinkedHashMap<>();
+        int stringBytes = 0;
+        for (Entry entry : entries) {
+            entryCount += entry.history().size();
+            for (String value : new String[] { entry.car().getBrand(), entry.car().getModel() }) {
+                if (!stringOffsets.containsKey(value)) {
+                    stringOffsets.put(value, stringBytes);
+                    stringBytes += Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+                }
+            }
+        }
+        FleetAggregates fleetAggregates = new FleetAggregates();
+        for (Entry entry : entries) {
+            fleetAggregates.replace(entry.car(), null, entry.aggregate());
+        }
+        if (entryCount * ENTRY_INDEX_RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IOException("Too many fuel entries for one archive: " + entryCount);
+        }
+
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel), 256 * 1024);
+            DataOutputStream out = new DataOutputStream(stream);
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(lsn);
+            out.writeLong(nextCarId);
+            out.writeLong(nextFuelEntryId);
+            out.writeInt(entries.size());
+            out.writeInt(0); // Padding
+            out.writeLong(entryCount);
+            out.writeLong(stringBytes);
+            out.writeInt(fleetAggregates.getGroups().size());
+            out.write(new byte[HEADER_SIZE - 60]);
+
+            long entryStart = 0;
+            for (Entry entry : entries) {
+                Car car = entry.car();
+                FuelAggregate.State aggregate = entry.aggregate();
+                out.writeLong(car.getId());
+                out.writeLong(FuelHistory.toEpochNanos(car.getCreatedAt()));
+                out.writeInt(car.getYear());
+                out.writeInt(stringOffsets.get(car.getBrand()));
+                out.writeInt(stringOffsets.get(car.getModel()));
+                out.writeInt(entry.history().size());
+                out.writeLong(entryStart);
+                out.writeDouble(aggregate.litersSum());
+                out.writeDouble(aggregate.litersCompensation());
+                out.writeDouble(aggregate.costSum());
+                out.writeDouble(aggregate.costCompensation());
+                out.writeDouble(aggregate.consumptionSum());
+                out.writeInt(aggregate.segmentCount());
+                out.writeInt(aggregate.lastOdometer() != null ? aggregate.lastOdometer() : -1);
+                out.writeInt(entry.history().isTimeOrdered() ? TIME_ORDERED : 0);
+                out.writeInt(0); // Padding
+                entryStart += entry.history().size();
+            }
+
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeLong(history.getId(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeDouble(history.getLiters(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeDouble(history.getPricePerLiter(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeInt(history.getOdometer(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeLong(history.getTimestampNanos(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeDouble(history.getLitersTotal(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeDouble(history.getCostTotal(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeDouble(history.getConsumptionTotal(i));
+                }
+            }
+            for (Entry entry : entries) {
+                FuelColumns history = entry.history();
+                for (int i = 0; i < history.size(); i++) {
+                    out.writeInt(history.getSegmentTotal(i));
+                }
+            }
+
+            writeEntryIndex(out, entries);
+
+            for (Map.Entry<FleetAggregates.Group, FleetAggregate> group : fleetAggregates.getGroups().entrySet()) {
+                FleetAggregate.Totals totals = group.getValue().totals();
+                out.writeInt(stringOffsets.get(group.getKey().brand()));
+                out.writeInt(stringOffsets.get(group.getKey().model()));
+                out.writeInt(group.getKey().year());
+                out.writeInt(0); // Padding
+                out.writeLong(totals.carCount());
+                out.writeLong(totals.entryCount());
+                out.writeLong(totals.segmentCount());
+                out.writeLong(totals.litersMicros());
+                out.writeLong(totals.costMicros());
+                out.writeLong(totals.consumptionMicros());
+            }
+
+            for (String value : stringOffsets.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Merge every car's entry ids, each already ascending, into one sorted run
+     */
+    private static void writeEntryIndex(DataOutputStream out, List<Entry> entries) throws IOException {
+        PriorityQueue<IdCursor> cursors = new PriorityQueue<>();
+        for (int i = 0; i < entries.size(); i++) {
+            FuelColumns history = entries.get(i).history();
+            if (history.size() > 0) {
+                cursors.add(new IdCursor(history, i));
+            }
+        }
+        while (!cursors.isEmpty()) {
+            IdCursor cursor = cursors.poll();
+            out.writeLong(cursor.id);
+            out.writeInt(cursor.carPosition);
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+    }
+
+    private static final class IdCursor implements Comparable<IdCursor> {
+        final FuelColumns history;
+        final int carPosition;
+        int index;
+        long id;
+
+        IdCursor(FuelColumns history, int carPosition) {
+            this.history = history;
+            this.carPosition = carPosition;
+            this.id = history.getId(0);
+        }
+
+        boolean advance() {
+            if (++index == history.size()) {
+                return false;
+            }
+            id = history.getId(index);
+            return true;
+        }
+
+        @Override
+        public int compareTo(IdCursor other) {
+            return Long.compare(id, other.id);
+        }
+    }
+}
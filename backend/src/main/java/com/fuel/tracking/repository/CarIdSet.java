@@ -0,0 +1,172 @@
+package com.fuel.tracking.repository;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ordered set of positive car ids, kept as a bitmap split into pages of 4096
+ * ids.
+ *
+ * Ids come from a monotonic generator, so they fill pages densely: a car
+ * costs about one bit, plus a 512-byte page and its map node per 4096 ids in
+ * use, where a ConcurrentSkipListSet pays a node, a boxed key and index nodes
+ * (60 bytes or more) per id. A car saved under a far-off id costs one page.
+ *
+ * Pages sit in a skip list keyed by id >>> 12, so walking from a cursor skips
+ * pages with no ids at all, and a page whose ids were all removed is dropped.
+ * Within a page, empty words are skipped 64 ids at a time.
+ *
+ * Readers take no lock. Writers lock the page they change, since ids of cars
+ * under different locks share pages; a page that has been dropped is
+ * retired, and a writer that finds it retired starts over on a new page.
+ */
+final class CarIdSet {
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private static final int WORDS_PER_PAGE = 1 << (PAGE_SHIFT - 6);
+
+    private final ConcurrentSkipListMap<Long, Page> pages = new ConcurrentSkipListMap<>();
+
+    void add(long id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Id must be positive: " + id);
+        }
+        long key = id >>> PAGE_SHIFT;
+        while (true) {
+            Page page = pages.computeIfAbsent(key, k -> new Page());
+            synchronized (page) {
+                if (!page.retired) {
+                    page.set((int) id & PAGE_MASK);
+                    return;
+                }
+            }
+        }
+    }
+
+    void remove(long id) {
+        if (id <= 0) {
+            return;
+        }
+        long key = id >>> PAGE_SHIFT;
+        Page page = pages.get(key);
+        if (page == null) {
+            return;
+        }
+        synchronized (page) {
+            if (!page.retired && page.clear((int) id & PAGE_MASK) && page.count == 0) {
+                page.retired = true;
+                pages.remove(key, page);
+            }
+        }
+    }
+
+    /**
+     * Ids greater than the given one, in ascending order. Ids added or
+     * removed during the walk may or may not be seen.
+     */
+    PrimitiveIterator.OfLong idsAfter(long after) {
+        return new IdIterator(Math.max(after, 0));
+    }
+
+    private static final class Page {
+        final AtomicLongArray words = new AtomicLongArray(WORDS_PER_PAGE);
+        // Guarded by the page's monitor
+        int count;
+        boolean retired;
+
+        void set(int bit) {
+            long word = words.get(bit >>> 6);
+            long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                words.set(bit >>> 6, word | mask);
+                count++;
+            }
+        }
+
+        boolean clear(int bit) {
+            long word = words.get(bit >>> 6);
+            long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                return false;
+            }
+            words.set(bit >>> 6, word & ~mask);
+            count--;
+            return true;
+        }
+
+        /**
+         * Position of the first id at or after the given one, or -1
+         */
+        int nextSetBit(int from) {
+            if (from > PAGE_MASK) {
+                return -1;
+            }
+            int index = from >>> 6;
+            long word = words.get(index) & (-1L << from);
+            while (word == 0) {
+                if (++index == WORDS_PER_PAGE) {
+                    return -1;
+                }
+                word = words.get(index);
+            }
+            return (index << 6) + Long.numberOfTrailingZeros(word);
+        }
+    }
+
+    private final class IdIterator implements PrimitiveIterator.OfLong {
+        private final long after;
+        private final Iterator<Map.Entry<Long, Page>> pageIterator;
+        private Page page;
+        private long pageStart;
+        private int from;
+        private long next;
+
+        IdIterator(long after) {
+            this.after = after;
+            this.pageIterator = pages.tailMap(after >>> PAGE_SHIFT, true).entrySet().iterator();
+            advance();
+        }
+
+        private void advance() {
+            while (true) {
+                if (page != null) {
+                    int bit = page.nextSetBit(from);
+                    if (bit >= 0) {
+                        from = bit + 1;
+                        next = pageStart + bit;
+                        return;
+                    }
+                }
+                if (!pageIterator.hasNext()) {
+                    next = 0;
+                    return;
+                }
+                Map.Entry<Long, Page> entry = pageIterator.next();
+                page = entry.getValue();
+                pageStart = entry.getKey() << PAGE_SHIFT;
+                // Only the cursor's own page has ids at or below it; no increment can overflow
+                from = pageStart > after ? 0 : (int) (after - pageStart) + 1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != 0;
+        }
+
+        @Override
+        public long nextLong() {
+            if (next == 0) {
+                throw new NoSuchElementException();
+            }
+            long id = next;
+            advance();
+            return id;
+        }
+    }
+}
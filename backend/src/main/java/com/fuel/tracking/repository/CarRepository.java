@@ -1,24 +1,92 @@
 package com.fuel.tracking.repository;
 
 import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetAggregates;
 import com.fuel.tracking.model.FuelEntry;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface CarRepository {
     Car save(Car car);
 
+    /**
+     * Save several cars in one pass. Cars without an id get consecutive ids,
+     * taken from the id generator in a single step, in list order.
+     */
+    List<Car> saveAll(List<Car> cars);
+
     Optional<Car> findById(Long id);
 
+    /**
+     * findById without boxing the id, for stores that index cars by a
+     * primitive key
+     */
+    default Optional<Car> findById(long id) {
+        return findById(Long.valueOf(id));
+    }
+
     List<Car> findAll();
 
+    /**
+     * Up to limit cars with an id greater than after (all cars when after is
+     * null), in id order
+     */
+    List<Car> findPage(Long after, int limit);
+
     boolean existsById(Long id);
 
+    default boolean existsById(long id) {
+        return existsById(Long.valueOf(id));
+    }
+
     void delete(Long id);
 
     // Fuel entry methods
     FuelEntry addFuelEntryToCar(Long carId, FuelEntry fuelEntry);
 
+    /**
+     * Append entries to one car in the given order, holding its lock once for
+     * the whole batch. An entry that fails the odometer check is skipped and
+     * the rest are still added. Returns one error message per entry, null for
+     * each entry that was added.
+     */
+    List<String> addFuelEntriesToCar(Long carId, List<FuelEntry> fuelEntries);
+
+    /**
+     * addFuelEntriesToCar for several cars; durable stores wait once, for the
+     * last record of the whole call. The errors come back keyed by car. A car
+     * that does not exist gets the same error for each of its entries.
+     */
+    Map<Long, List<String>> addFuelEntriesToCars(Map<Long, List<FuelEntry>> fuelEntriesByCar);
+
     List<FuelEntry> getFuelEntriesForCar(Long carId);
+
+    /**
+     * Id of the car a fuel entry was added to, looked up in the entry id index.
+     * The caller confirms the entry is still in that car's history.
+     */
+    Optional<Long> findCarIdByFuelEntryId(Long fuelEntryId);
+
+    /**
+     * A single fuel entry by its id, with its car id set. The index may still
+     * point at a car the entry has since been removed from, so the entry is
+     * confirmed in the car's history.
+     */
+    default Optional<FuelEntry> findFuelEntryById(long fuelEntryId) {
+        return findCarIdByFuelEntryId(fuelEntryId)
+                .flatMap(this::findById)
+                .flatMap(car -> car.findFuelEntry(fuelEntryId));
+    }
+
+    FuelEntry updateFuelEntry(Long carId, FuelEntry fuelEntry);
+
+    void deleteFuelEntry(Long carId, Long fuelEntryId);
+
+    /**
+     * Totals across all cars and per (brand, model, year), maintained as cars
+     * and entries change
+     */
+    FleetAggregates getFleetAggregates();
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+package com.fuel.tracking.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Map from positive long keys to values, kept in open-addressed primitive
+ * arrays.
+ *
+ * Lookups take a long and never box it, and an entry costs one slot in a
+ * long array and one in a reference array, where a ConcurrentHashMap or a
+ * skip list pays for a node and a boxed key per entry (and index nodes on
+ * top for the skip list).
+ *
+ * Readers take no lock. A slot's value is written before its key, and a
+ * removal clears the value and leaves a tombstone instead of moving other
+ * entries back, so entries never change slots and a probe cannot step past
+ * an entry that was present for its whole duration. Writers are serialized
+ * by one lock; for the car index they are saves and deletes of cars, which
+ * are rare next to lookups. When free slots run low the live entries are
+ * rehashed into a new table, published through a volatile field.
+ */
+final class ConcurrentLongMap<V> {
+
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile Table<V> table = new Table<>(MIN_CAPACITY);
+    private volatile int size;
+
+    V get(long key) {
+        if (key <= 0) {
+            return null;
+        }
+        Table<V> current = table;
+        for (int i = current.home(key); ; i = current.next(i)) {
+            long slotKey = current.keys.get(i);
+            if (slotKey == key) {
+                // Null while a removal is in progress, which reads as absent
+                return current.values.get(i);
+            }
+            if (slotKey == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return the value previously mapped to the key, or null
+     */
+    V put(long key, V value) {
+        if (key <= 0) {
+            throw new IllegalArgumentException("Key must be positive: " + key);
+        }
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        writeLock.lock();
+        try {
+            Table<V> current = table;
+            if (current.used >= current.threshold) {
+                current = rehash(current);
+            }
+            int free = -1;
+            for (int i = current.home(key); ; i = current.next(i)) {
+                long slotKey = current.keys.get(i);
+                if (slotKey == key) {
+                    return current.values.getAndSet(i, value);
+                }
+                if (slotKey == TOMBSTONE && free < 0) {
+                    free = i;
+                } else if (slotKey == EMPTY) {
+                    if (free < 0) {
+                        free = i;
+                        current.used++;
+                    }
+                    break;
+                }
+            }
+            current.values.set(free, value);
+            current.keys.set(free, key);
+            size++;
+            return null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the value that was mapped to the key, or null
+     */
+    V remove(long key) {
+        if (key <= 0) {
+            return null;
+        }
+        writeLock.lock();
+        try {
+            Table<V> current = table;
+            for (int i = current.home(key); ; i = current.next(i)) {
+                long slotKey = current.keys.get(i);
+                if (slotKey == key) {
+                    V previous = current.values.getAndSet(i, null);
+                    current.keys.set(i, TOMBSTONE);
+                    size--;
+                    return previous;
+                }
+                if (slotKey == EMPTY) {
+                    return null;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Copy the live entries into a table sized for twice their number,
+     * dropping tombstones, and publish it
+     */
+    private Table<V> rehash(Table<V> current) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < (size + 1) * 2) {
+            capacity <<= 1;
+        }
+        Table<V> rehashed = new Table<>(capacity);
+        for (int i = 0; i < current.keys.length(); i++) {
+            long key = current.keys.get(i);
+            if (key > 0) {
+                int slot = rehashed.home(key);
+                while (rehashed.keys.get(slot) != EMPTY) {
+                    slot = rehashed.next(slot);
+                }
+                rehashed.values.set(slot, current.values.get(i));
+                rehashed.keys.set(slot, key);
+                rehashed.used++;
+            }
+        }
+        table = rehashed;
+        return rehashed;
+    }
+
+    private static final class Table<V> {
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<V> values;
+        final int mask;
+        // Slots holding a key or a tombstone, guarded by the write lock
+        int used;
+        // Keep at least a quarter of the slots empty, so probes stay short and always end
+        final int threshold;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+            this.threshold = capacity - capacity / 4;
+        }
+
+        int home(long key) {
+            // Spread sequential ids across the table
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+
+        int next(int slot) {
+            return (slot + 1) & mask;
+        }
+    }
+}
@@ -0,0 +1,438 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetAggregates;
+import com.fuel.tracking.model.FuelEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Car repository that survives restarts.
+ *
+ * Cars live in an InMemoryCarRepository as usual; every mutation is also
+ * appended to a write-ahead log and the call returns once the record is on
+ * disk. A compact snapshot of the whole store is written periodically (and
+ * on shutdown), after which the log segments it covers are deleted. On
+ * startup the latest snapshot is loaded and only the log tail after it is
+ * replayed, so recovery time is bounded by the snapshot interval rather than
+ * by the age of the data.
+ *
+ * Each change is applied and logged under the car's lock from the store, so
+ * the log holds every car's changes in the order they were applied while
+ * writes to different cars proceed in parallel. Changes the store has to
+ * validate are applied first and undone if the log append fails; deletes are
+ * checked, logged, then applied. Either way a change the log refused never
+ * stays in memory.
+ *
+ * Enabled with fuel.storage.mode=durable.
+ */
+@Repository
+@ConditionalOnProperty(name = "fuel.storage.mode", havingValue = "durable")
+public class DurableCarRepository implements CarRepository, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(DurableCarRepository.class);
+
+    private final InMemoryCarRepository store = new InMemoryCarRepository();
+    private final WriteAheadLog writeAheadLog;
+    private final SnapshotStore snapshotStore;
+
+    private final ScheduledExecutorService snapshotScheduler;
+    private volatile long lastSnapshotLsn = -1;
+
+    public DurableCarRepository(
+            @Value("${fuel.storage.directory:data}") String directory,
+            @Value("${fuel.storage.wal.segment-size-bytes:67108864}") long segmentSizeBytes,
+            @Value("${fuel.storage.snapshot.interval-seconds:300}") long snapshotIntervalSeconds)
+            throws IOException {
+        this(Paths.get(directory), segmentSizeBytes, snapshotIntervalSeconds);
+    }
+
+    DurableCarRepository(Path directory, long segmentSizeBytes, long snapshotIntervalSeconds) throws IOException {
+        this.writeAheadLog = new WriteAheadLog(directory, segmentSizeBytes);
+        this.snapshotStore = new SnapshotStore(directory);
+
+        recover();
+        writeAheadLog.start();
+
+        snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (snapshotIntervalSeconds > 0) {
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotQuietly,
+                    snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    private void recover() throws IOException {
+        long started = System.nanoTime();
+        long snapshotLsn = 0;
+
+        Optional<SnapshotStore.LoadedSnapshot> snapshot = snapshotStore.loadLatest();
+        if (snapshot.isPresent()) {
+            SnapshotStore.LoadedSnapshot loaded = snapshot.get();
+            loaded.cars().forEach(store::restoreCar);
+            store.restoreIdGenerators(loaded.nextCarId(), loaded.nextFuelEntryId());
+            snapshotLsn = loaded.lsn();
+            lastSnapshotLsn = snapshotLsn;
+        }
+
+        long[] replayed = new long[1];
+        long lastLsn = writeAheadLog.recover(snapshotLsn, (lsn, type, payload) -> {
+            replay(type, payload);
+            replayed[0]++;
+        });
+
+        log.info("Recovered {} cars from snapshot at LSN {} and {} log records up to LSN {} in {} ms",
+                store.findAll().size(), snapshotLsn, replayed[0], lastLsn,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private void replay(byte type, ByteBuffer payload) throws IOException {
+        DataInputStream in = WalRecords.reader(payload);
+        switch (type) {
+            case WalRecords.SAVE_CAR -> {
+                Car car = WalRecords.decodeCar(in);
+                Optional<Car> existing = store.findById(car.getId());
+                if (existing.isPresent()) {
+                    // Re-saving a car keeps its history, only the details change
+                    existing.get().setBrand(car.getBrand());
+                    existing.get().setModel(car.getModel());
+                    existing.get().setYear(car.getYear());
+                } else {
+                    store.restoreCar(car);
+                }
+            }
+            case WalRecords.ADD_FUEL_ENTRY -> {
+                long carId = in.readLong();
+                store.restoreFuelEntry(carId, WalRecords.decodeFuelEntry(in));
+            }
+            case WalRecords.DELETE_CAR -> store.delete(in.readLong());
+            case WalRecords.UPDATE_FUEL_ENTRY -> {
+                long carId = in.readLong();
+                store.updateFuelEntry(carId, WalRecords.decodeFuelEntry(in));
+            }
+            case WalRecords.DELETE_FUEL_ENTRY -> store.deleteFuelEntry(in.readLong(), in.readLong());
+            default -> throw new IOException("Unknown write-ahead log record type " + type);
+        }
+    }
+
+    @Override
+    public Car save(Car car) {
+        long lsn;
+        store.assignId(car);
+        Lock lock = store.lockFor(car.getId());
+        lock.lock();
+        try {
+            lsn = saveAndLog(car);
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+        return car;
+    }
+
+    /**
+     * Logs every car, then waits once for the fsync covering the last one
+     */
+    @Override
+    public List<Car> saveAll(List<Car> cars) {
+        long lsn = -1;
+        store.assignIds(cars);
+        for (Car car : cars) {
+            Lock lock = store.lockFor(car.getId());
+            lock.lock();
+            try {
+                lsn = saveAndLog(car);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (lsn >= 0) {
+            writeAheadLog.awaitDurable(lsn);
+        }
+        return cars;
+    }
+
+    /**
+     * Save the car and log it, putting back the car it replaced if the log
+     * append fails. Called with the car's lock held.
+     */
+    private long saveAndLog(Car car) {
+        Car previous = store.findById(car.getId().longValue()).orElse(null);
+        store.save(car);
+        try {
+            return writeAheadLog.append(WalRecords.SAVE_CAR, WalRecords.encodeCar(car));
+        } catch (RuntimeException e) {
+            if (previous != null) {
+                store.save(previous);
+            } else {
+                store.delete(car.getId());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Car> findById(Long id) {
+        return store.findById(id);
+    }
+
+    @Override
+    public Optional<Car> findById(long id) {
+        return store.findById(id);
+    }
+
+    @Override
+    public List<Car> findAll() {
+        return store.findAll();
+    }
+
+    @Override
+    public List<Car> findPage(Long after, int limit) {
+        return store.findPage(after, limit);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return store.existsById(id);
+    }
+
+    @Override
+    public boolean existsById(long id) {
+        return store.existsById(id);
+    }
+
+    @Override
+    public void delete(Long id) {
+        long lsn;
+        Lock lock = store.lockFor(id);
+        lock.lock();
+        try {
+            lsn = writeAheadLog.append(WalRecords.DELETE_CAR, WalRecords.encodeCarId(id));
+            store.delete(id);
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+    }
+
+    @Override
+    public FuelEntry addFuelEntryToCar(Long carId, FuelEntry fuelEntry) {
+        long lsn;
+        Lock lock = store.lockFor(carId);
+        lock.lock();
+        try {
+            store.addFuelEntryToCar(carId, fuelEntry);
+            try {
+                lsn = writeAheadLog.append(WalRecords.ADD_FUEL_ENTRY, WalRecords.encodeFuelEntry(carId, fuelEntry));
+            } catch (RuntimeException e) {
+                store.deleteFuelEntry(carId, fuelEntry.getId());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+        return fuelEntry;
+    }
+
+    /**
+     * One log record per added entry, but a single wait for the fsync that
+     * covers the last of them
+     */
+    @Override
+    public List<String> addFuelEntriesToCar(Long carId, List<FuelEntry> fuelEntries) {
+        List<String> errors = new ArrayList<>(fuelEntries.size());
+        awaitDurable(appendFuelEntries(carId, fuelEntries, errors));
+        return errors;
+    }
+
+    @Override
+    public Map<Long, List<String>> addFuelEntriesToCars(Map<Long, List<FuelEntry>> fuelEntriesByCar) {
+        Map<Long, List<String>> errorsByCar = new LinkedHashMap<>();
+        long lsn = -1;
+        for (Map.Entry<Long, List<FuelEntry>> car : fuelEntriesByCar.entrySet()) {
+            List<String> errors = new ArrayList<>(car.getValue().size());
+            try {
+                lsn = Math.max(lsn, appendFuelEntries(car.getKey(), car.getValue(), errors));
+            } catch (IllegalArgumentException e) {
+                errors = Collections.nCopies(car.getValue().size(), e.getMessage());
+            }
+            errorsByCar.put(car.getKey(), errors);
+        }
+        awaitDurable(lsn);
+        return errorsByCar;
+    }
+
+    /**
+     * Apply and log a car's entries under one hold of its lock, filling in
+     * the error per entry. If an append fails, the entries not yet logged
+     * are taken back out before the failure is thrown.
+     *
+     * @return the LSN of the last record written, or -1 if none was
+     */
+    private long appendFuelEntries(Long carId, List<FuelEntry> fuelEntries, List<String> errors) {
+        long lsn = -1;
+        Lock lock = store.lockFor(carId);
+        lock.lock();
+        try {
+            errors.addAll(store.addFuelEntriesToCar(carId, fuelEntries));
+            for (int i = 0; i < fuelEntries.size(); i++) {
+                if (errors.get(i) == null) {
+                    try {
+                        lsn = writeAheadLog.append(WalRecords.ADD_FUEL_ENTRY,
+                                WalRecords.encodeFuelEntry(carId, fuelEntries.get(i)));
+                    } catch (RuntimeException e) {
+                        for (int j = i; j < fuelEntries.size(); j++) {
+                            if (errors.get(j) == null) {
+                                store.deleteFuelEntry(carId, fuelEntries.get(j).getId());
+                            }
+                        }
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return lsn;
+    }
+
+    private void awaitDurable(long lsn) {
+        if (lsn >= 0) {
+            writeAheadLog.awaitDurable(lsn);
+        }
+    }
+
+    @Override
+    public List<FuelEntry> getFuelEntriesForCar(Long carId) {
+        return store.getFuelEntriesForCar(carId);
+    }
+
+    @Override
+    public Optional<Long> findCarIdByFuelEntryId(Long fuelEntryId) {
+        return store.findCarIdByFuelEntryId(fuelEntryId);
+    }
+
+    @Override
+    public Optional<FuelEntry> findFuelEntryById(long fuelEntryId) {
+        return store.findFuelEntryById(fuelEntryId);
+    }
+
+    @Override
+    public FuelEntry updateFuelEntry(Long carId, FuelEntry fuelEntry) {
+        long lsn;
+        Lock lock = store.lockFor(carId);
+        lock.lock();
+        try {
+            Optional<FuelEntry> previous = store.findFuelEntryById(fuelEntry.getId());
+            store.updateFuelEntry(carId, fuelEntry);
+            try {
+                lsn = writeAheadLog.append(WalRecords.UPDATE_FUEL_ENTRY,
+                        WalRecords.encodeFuelEntry(carId, fuelEntry));
+            } catch (RuntimeException e) {
+                // The update succeeded, so the entry was in this car before it
+                store.updateFuelEntry(carId, previous.orElseThrow());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+        return fuelEntry;
+    }
+
+    @Override
+    public void deleteFuelEntry(Long carId, Long fuelEntryId) {
+        long lsn;
+        Lock lock = store.lockFor(carId);
+        lock.lock();
+        try {
+            store.checkFuelEntryExists(carId, fuelEntryId);
+            lsn = writeAheadLog.append(WalRecords.DELETE_FUEL_ENTRY, WalRecords.encodeFuelEntryId(carId, fuelEntryId));
+            store.deleteFuelEntry(carId, fuelEntryId);
+        } finally {
+            lock.unlock();
+        }
+        writeAheadLog.awaitDurable(lsn);
+    }
+
+    @Override
+    public FleetAggregates getFleetAggregates() {
+        return store.getFleetAggregates();
+    }
+
+    /**
+     * Write a snapshot of the current state and drop the log segments it makes
+     * redundant. Only the capture of the cut blocks writers; the file itself
+     * is written while writes carry on.
+     */
+    public void snapshot() throws IOException {
+        SnapshotStore.Snapshot snapshot;
+        store.lockAllCars();
+        try {
+            long lsn = writeAheadLog.getLastLsn();
+            if (lsn == lastSnapshotLsn) {
+                return; // Nothing changed since the last snapshot
+            }
+            List<SnapshotStore.CarState> cars = store.findAll().stream()
+                    .map(car -> new SnapshotStore.CarState(car, car.getFuelHistory().snapshot()))
+                    .toList();
+            snapshot = new SnapshotStore.Snapshot(lsn, store.getNextCarId(), store.getNextFuelEntryId(), cars);
+        } finally {
+            store.unlockAllCars();
+        }
+
+        // Everything in the snapshot must be durable before older log segments go away
+        writeAheadLog.awaitDurable(snapshot.lsn());
+        long obsoleteUpTo = snapshotStore.write(snapshot);
+        lastSnapshotLsn = snapshot.lsn();
+        writeAheadLog.deleteSegmentsUpTo(obsoleteUpTo);
+        log.debug("Wrote snapshot at LSN {} with {} cars", snapshot.lsn(), snapshot.cars().size());
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            log.error("Periodic snapshot failed", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        snapshotScheduler.shutdown();
+        try {
+            snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            snapshot();
+        } finally {
+            writeAheadLog.close();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.fuel.tracking.repository;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Index from fuel entry id to the car holding the entry and the entry's
+ * position in that car's history.
+ *
+ * Kept in open-addressed primitive arrays, about 20 bytes a slot, where a
+ * ConcurrentHashMap<Long, Long> spends a node and two boxed longs (64 bytes
+ * or more) per entry. Every fuel entry has a slot, so this is the index
+ * whose size matters most.
+ *
+ * The table is split into segments by id hash, each with its own write lock,
+ * so writers to different cars rarely meet. Readers take no lock, as in
+ * ConcurrentLongMap: a slot's car id and position are written before its key
+ * and removals leave tombstones. A position is only a hint: it is rewritten
+ * when an earlier entry of the car is removed, and a reader may see an old
+ * one, so callers check it against the history before trusting it.
+ */
+final class FuelEntryIndex {
+
+    private static final long EMPTY = 0;
+    private static final long TOMBSTONE = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    FuelEntryIndex(int segmentCount) {
+        int size = Integer.highestOneBit(Math.max(1, segmentCount - 1)) << 1;
+        this.segments = new Segment[size];
+        this.segmentMask = size - 1;
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Enough segments that busy writers rarely share one
+     */
+    static FuelEntryIndex forAvailableProcessors() {
+        return new FuelEntryIndex(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+    }
+
+    record Location(long carId, int position) {
+    }
+
+    /**
+     * Where the entry was last indexed, or null
+     */
+    Location get(long fuelEntryId) {
+        if (fuelEntryId <= 0) {
+            return null;
+        }
+        long hash = hash(fuelEntryId);
+        Table table = segmentFor(hash).table;
+        for (int i = table.home(hash); ; i = table.next(i)) {
+            long key = table.keys.get(i);
+            if (key == fuelEntryId) {
+                long carId = table.carIds.get(i);
+                // Zero while a removal is in progress, which reads as absent
+                return carId == 0 ? null : new Location(carId, table.positions.get(i));
+            }
+            if (key == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Index the entry, or move it to a new car or position
+     */
+    void put(long fuelEntryId, long carId, int position) {
+        if (fuelEntryId <= 0 || carId <= 0) {
+            throw new IllegalArgumentException("Ids must be positive: " + fuelEntryId + ", " + carId);
+        }
+        long hash = hash(fuelEntryId);
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            Table table = segment.table;
+            if (table.used >= table.threshold) {
+                table = segment.rehash();
+            }
+            int free = -1;
+            for (int i = table.home(hash); ; i = table.next(i)) {
+                long key = table.keys.get(i);
+                if (key == fuelEntryId) {
+                    table.positions.set(i, position);
+                    table.carIds.set(i, carId);
+                    return;
+                }
+                if (key == TOMBSTONE && free < 0) {
+                    free = i;
+                } else if (key == EMPTY) {
+                    if (free < 0) {
+                        free = i;
+                        table.used++;
+                    }
+                    break;
+                }
+            }
+            table.positions.set(free, position);
+            table.carIds.set(free, carId);
+            table.keys.set(free, fuelEntryId);
+            segment.size++;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    void remove(long fuelEntryId) {
+        if (fuelEntryId <= 0) {
+            return;
+        }
+        long hash = hash(fuelEntryId);
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            Table table = segment.table;
+            for (int i = table.home(hash); ; i = table.next(i)) {
+                long key = table.keys.get(i);
+                if (key == fuelEntryId) {
+                    table.carIds.set(i, 0);
+                    table.keys.set(i, TOMBSTONE);
+                    segment.size--;
+                    return;
+                }
+                if (key == EMPTY) {
+                    return;
+                }
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private static long hash(long fuelEntryId) {
+        // Spread sequential ids across segments and slots
+        return fuelEntryId * 0x9E3779B97F4A7C15L;
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) hash & segmentMask];
+    }
+
+    private static final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile Table table = new Table(MIN_CAPACITY);
+        // Guarded by lock
+        int size;
+
+        /**
+         * Copy the live slots into a table sized for twice their number,
+         * dropping tombstones, and publish it
+         */
+        Table rehash() {
+            Table current = table;
+            int capacity = MIN_CAPACITY;
+            while (capacity < (size + 1) * 2) {
+                capacity <<= 1;
+            }
+            Table rehashed = new Table(capacity);
+            for (int i = 0; i < current.keys.length(); i++) {
+                long key = current.keys.get(i);
+                if (key > 0) {
+                    int slot = rehashed.home(hash(key));
+                    while (rehashed.keys.get(slot) != EMPTY) {
+                        slot = rehashed.next(slot);
+                    }
+                    rehashed.positions.set(slot, current.positions.get(i));
+                    rehashed.carIds.set(slot, current.carIds.get(i));
+                    rehashed.keys.set(slot, key);
+                    rehashed.used++;
+                }
+            }
+            table = rehashed;
+            return rehashed;
+        }
+    }
+
+    private static final class Table {
+        final AtomicLongArray keys;
+        final AtomicLongArray carIds;
+        final AtomicIntegerArray positions;
+        final int mask;
+        // Slots holding a key or a tombstone, guarded by the segment lock
+        int used;
+        final int threshold;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.carIds = new AtomicLongArray(capacity);
+            this.positions = new AtomicIntegerArray(capacity);
+            this.mask = capacity - 1;
+            this.threshold = capacity - capacity / 4;
+        }
+
+        int home(long hash) {
+            // The low bits pick the segment, so slots come from the high ones
+            return (int) (hash >>> 32) & mask;
+        }
+
+        int next(int slot) {
+            return (slot + 1) & mask;
+        }
+    }
+}
@@ -5,6 +5,10 @@ import java.util.List;
 import java.util.Optional;
 
 public interface FuelEntryRepository {
+    /**
+     * Add a new entry (no id) to the car given by its carId, or update the
+     * existing entry with the same id
+     */
     FuelEntry save(FuelEntry fuelEntry);
 
     Optional<FuelEntry> findById(Long id);
@@ -12,6 +16,4 @@ public interface FuelEntryRepository {
     List<FuelEntry> findByCarId(Long carId);
 
     void delete(Long id);
-
-    Long getNextId();
-}
\ No newline at end of file
+}
@@ -1,78 +1,418 @@
 package com.fuel.tracking.repository;
 
 import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetAggregates;
+import com.fuel.tracking.model.FuelAggregate;
 import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.PrimitiveIterator;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 @Repository
+@ConditionalOnProperty(name = "fuel.storage.mode", havingValue = "memory", matchIfMissing = true)
 public class InMemoryCarRepository implements CarRepository {
 
-    private final Map<Long, Car> carStore = new ConcurrentHashMap<>();
+    // Keyed by primitive id, for lookups
+    private final ConcurrentLongMap<Car> carStore = new ConcurrentLongMap<>();
+    // Ids of the stored cars in order, for pages and findAll
+    private final CarIdSet carIds = new CarIdSet();
+    // Secondary index from fuel entry id to the car holding it and the entry's position there
+    private final FuelEntryIndex fuelEntryIndex = FuelEntryIndex.forAvailableProcessors();
     private final AtomicLong carIdGenerator = new AtomicLong(1);
     private final AtomicLong fuelEntryIdGenerator = new AtomicLong(1);
 
+    private final FleetAggregates fleetAggregates = new FleetAggregates();
+
+    // Immutable list of all cars, rebuilt on the first read after the set of cars changes
+    private final AtomicLong carSetVersion = new AtomicLong();
+    private volatile CarList carList = new CarList(0, List.of());
+
+    // Serializes writes per car; reads go straight to the published state
+    private final StripedLocks carLocks = StripedLocks.forAvailableProcessors();
+
     @Override
     public Car save(Car car) {
-        if (car.getId() == null) {
-            car.setId(carIdGenerator.getAndIncrement());
-        }
-        carStore.put(car.getId(), car);
+        assignId(car);
+        store(car);
         return car;
     }
 
+    @Override
+    public List<Car> saveAll(List<Car> cars) {
+        assignIds(cars);
+        for (Car car : cars) {
+            store(car);
+        }
+        return cars;
+    }
+
+    private void store(Car car) {
+        Lock lock = lockFor(car.getId());
+        lock.lock();
+        try {
+            Car previous = carStore.put(car.getId(), car);
+            carIds.add(car.getId());
+            carSetVersion.incrementAndGet();
+            carIdGenerator.accumulateAndGet(car.getId() + 1, Math::max);
+            indexFuelEntries(car, 0);
+            fleetAggregates.replace(previous, aggregateOf(previous), car, aggregateOf(car));
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     public Optional<Car> findById(Long id) {
+        return findById(id.longValue());
+    }
+
+    @Override
+    public Optional<Car> findById(long id) {
         return Optional.ofNullable(carStore.get(id));
     }
 
+    /**
+     * The same immutable list is returned until a car is saved or deleted, so
+     * repeated reads neither copy nor lock. Each car in it serves its entries
+     * from its own published history snapshot.
+     */
     @Override
     public List<Car> findAll() {
-        return new ArrayList<>(carStore.values());
+        CarList published = carList;
+        long version = carSetVersion.get();
+        if (published.version() == version) {
+            return published.cars();
+        }
+        List<Car> cars = Collections.unmodifiableList(findPage(null, Integer.MAX_VALUE));
+        // Publish only if no save or delete landed during the copy
+        if (carSetVersion.get() == version) {
+            carList = new CarList(version, cars);
+        }
+        return cars;
+    }
+
+    /**
+     * Walks the ordered id set from the cursor, so a page costs the cars on
+     * it plus one word read per 64 ids skipped on pages still in use.
+     */
+    @Override
+    public List<Car> findPage(Long after, int limit) {
+        List<Car> page = new ArrayList<>(Math.min(limit, Math.max(carStore.size(), 16)));
+        PrimitiveIterator.OfLong ids = carIds.idsAfter(after == null ? 0 : after);
+        while (ids.hasNext() && page.size() < limit) {
+            // Null if the car was deleted since the id was read
+            Car car = carStore.get(ids.nextLong());
+            if (car != null) {
+                page.add(car);
+            }
+        }
+        return page;
     }
 
     @Override
     public boolean existsById(Long id) {
+        return existsById(id.longValue());
+    }
+
+    @Override
+    public boolean existsById(long id) {
         return carStore.containsKey(id);
     }
 
     @Override
     public void delete(Long id) {
-        carStore.remove(id);
+        Lock lock = lockFor(id);
+        lock.lock();
+        try {
+            Car car = carStore.remove(id);
+            carIds.remove(id);
+            carSetVersion.incrementAndGet();
+            fleetAggregates.replace(car, aggregateOf(car), null);
+            if (car != null) {
+                FuelHistory.Snapshot history = car.getFuelHistory().snapshot();
+                for (int i = 0; i < history.size(); i++) {
+                    fuelEntryIndex.remove(history.getId(i));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
     }
 
+    /**
+     * Checks the odometer reading against the car's highest one and appends
+     * the entry as one step under the car's lock, so concurrent writers to the
+     * same car cannot both pass the check with out-of-order readings.
+     */
     @Override
     public FuelEntry addFuelEntryToCar(Long carId, FuelEntry fuelEntry) {
+        Lock lock = lockFor(carId);
+        lock.lock();
+        try {
+            Car car = carStore.get(carId);
+            if (car == null) {
+                throw new IllegalArgumentException("Car with id " + carId + " not found");
+            }
+
+            // Generate ID for fuel entry
+            fuelEntry.setId(fuelEntryIdGenerator.getAndIncrement());
+
+            // Add to car's fuel entries, rejecting a lower odometer reading
+            FuelAggregate.State before = aggregateOf(car);
+            car.addFuelEntry(fuelEntry);
+            fleetAggregates.replace(car, before, aggregateOf(car));
+            fuelEntry.setCarId(carId);
+            fuelEntryIndex.put(fuelEntry.getId(), carId, car.getFuelEntryCount() - 1);
+        } finally {
+            lock.unlock();
+        }
+
+        return fuelEntry;
+    }
+
+    @Override
+    public List<String> addFuelEntriesToCar(Long carId, List<FuelEntry> fuelEntries) {
+        Lock lock = lockFor(carId);
+        lock.lock();
+        try {
+            return appendFuelEntries(carId, fuelEntries);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Long, List<String>> addFuelEntriesToCars(Map<Long, List<FuelEntry>> fuelEntriesByCar) {
+        Map<Long, List<String>> errorsByCar = new LinkedHashMap<>();
+        fuelEntriesByCar.forEach((carId, fuelEntries) -> {
+            try {
+                errorsByCar.put(carId, addFuelEntriesToCar(carId, fuelEntries));
+            } catch (IllegalArgumentException e) {
+                errorsByCar.put(carId, Collections.nCopies(fuelEntries.size(), e.getMessage()));
+            }
+        });
+        return errorsByCar;
+    }
+
+    private List<String> appendFuelEntries(Long carId, List<FuelEntry> fuelEntries) {
+        List<String> errors = new ArrayList<>(fuelEntries.size());
+        Car car = getCar(carId);
+        FuelAggregate.State before = aggregateOf(car);
+        for (FuelEntry fuelEntry : fuelEntries) {
+            fuelEntry.setId(fuelEntryIdGenerator.getAndIncrement());
+            try {
+                car.addFuelEntry(fuelEntry);
+            } catch (IllegalArgumentException e) {
+                fuelEntry.setId(null);
+                errors.add(e.getMessage());
+                continue;
+            }
+            fuelEntry.setCarId(carId);
+            fuelEntryIndex.put(fuelEntry.getId(), carId, car.getFuelEntryCount() - 1);
+            errors.add(null);
+        }
+        fleetAggregates.replace(car, before, aggregateOf(car));
+        return errors;
+    }
+
+    /**
+     * Read-only view over the car's current history snapshot; entries are
+     * materialized as the list is read, and later writes do not show through
+     */
+    @Override
+    public List<FuelEntry> getFuelEntriesForCar(Long carId) {
+        return getCar(carId).getFuelHistory().snapshot().asList(carId);
+    }
+
+    @Override
+    public Optional<Long> findCarIdByFuelEntryId(Long fuelEntryId) {
+        FuelEntryIndex.Location location = fuelEntryIndex.get(fuelEntryId);
+        return location != null ? Optional.of(location.carId()) : Optional.empty();
+    }
+
+    /**
+     * The index gives the car and the entry's position in its history, so
+     * the entry is usually read without searching the history at all
+     */
+    @Override
+    public Optional<FuelEntry> findFuelEntryById(long fuelEntryId) {
+        FuelEntryIndex.Location location = fuelEntryIndex.get(fuelEntryId);
+        if (location == null) {
+            return Optional.empty();
+        }
+        Car car = carStore.get(location.carId());
+        return car != null ? car.findFuelEntry(fuelEntryId, location.position()) : Optional.empty();
+    }
+
+    @Override
+    public FuelEntry updateFuelEntry(Long carId, FuelEntry fuelEntry) {
+        Lock lock = lockFor(carId);
+        lock.lock();
+        try {
+            Car car = getCar(carId);
+            FuelAggregate.State before = aggregateOf(car);
+            if (!car.replaceFuelEntry(fuelEntry)) {
+                throw fuelEntryNotFound(carId, fuelEntry.getId());
+            }
+            fleetAggregates.replace(car, before, aggregateOf(car));
+            fuelEntry.setCarId(carId);
+        } finally {
+            lock.unlock();
+        }
+        return fuelEntry;
+    }
+
+    @Override
+    public void deleteFuelEntry(Long carId, Long fuelEntryId) {
+        Lock lock = lockFor(carId);
+        lock.lock();
+        try {
+            Car car = getCar(carId);
+            FuelAggregate.State before = aggregateOf(car);
+            int index = car.getFuelHistory().snapshot().indexOfId(fuelEntryId);
+            if (!car.removeFuelEntry(fuelEntryId)) {
+                throw fuelEntryNotFound(carId, fuelEntryId);
+            }
+            fleetAggregates.replace(car, before, aggregateOf(car));
+            fuelEntryIndex.remove(fuelEntryId);
+            // The entries after it moved up one place
+            indexFuelEntries(car, index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Throw the error deleteFuelEntry would, if the car or the entry is
+     * missing, without changing anything
+     */
+    void checkFuelEntryExists(Long carId, Long fuelEntryId) {
+        if (getCar(carId).getFuelHistory().snapshot().indexOfId(fuelEntryId) < 0) {
+            throw fuelEntryNotFound(carId, fuelEntryId);
+        }
+    }
+
+    @Override
+    public FleetAggregates getFleetAggregates() {
+        return fleetAggregates;
+    }
+
+    private static FuelAggregate.State aggregateOf(Car car) {
+        return car != null ? car.getFuelHistory().snapshot().aggregate() : null;
+    }
+
+    private Car getCar(Long carId) {
         Car car = carStore.get(carId);
         if (car == null) {
             throw new IllegalArgumentException("Car with id " + carId + " not found");
         }
+        return car;
+    }
 
-        // Generate ID for fuel entry
-        fuelEntry.setId(fuelEntryIdGenerator.getAndIncrement());
+    private static IllegalArgumentException fuelEntryNotFound(Long carId, Long fuelEntryId) {
+        return new IllegalArgumentException("Fuel entry with id " + fuelEntryId + " not found for car " + carId);
+    }
 
-        // Add to car's fuel entries
-        car.addFuelEntry(fuelEntry);
+    private void indexFuelEntries(Car car, int from) {
+        FuelHistory.Snapshot history = car.getFuelHistory().snapshot();
+        for (int i = Math.max(from, 0); i < history.size(); i++) {
+            fuelEntryIndex.put(history.getId(i), car.getId(), i);
+        }
+    }
 
-        // Update car in store
-        carStore.put(carId, car);
+    /**
+     * Give a new car the next id; cars that already have one keep it
+     */
+    void assignId(Car car) {
+        if (car.getId() == null) {
+            car.setId(carIdGenerator.getAndIncrement());
+        }
+    }
 
-        return fuelEntry;
+    /**
+     * Give the cars that have no id consecutive ids, reserved with one update
+     * of the generator
+     */
+    void assignIds(List<Car> cars) {
+        long nextId = carIdGenerator.getAndAdd(cars.stream().filter(car -> car.getId() == null).count());
+        for (Car car : cars) {
+            if (car.getId() == null) {
+                car.setId(nextId++);
+            }
+        }
     }
 
-    @Override
-    public List<FuelEntry> getFuelEntriesForCar(Long carId) {
+    /**
+     * The lock serializing writes to the given car. Wrappers that log changes
+     * hold it across the change and the log append, keeping both in the same
+     * order for each car.
+     */
+    Lock lockFor(Long carId) {
+        return carLocks.lockFor(carId);
+    }
+
+    /**
+     * Block all writers, for capturing a consistent snapshot
+     */
+    void lockAllCars() {
+        carLocks.lockAll();
+    }
+
+    void unlockAllCars() {
+        carLocks.unlockAll();
+    }
+
+    /**
+     * Put a car back with its existing id (used when recovering from disk)
+     */
+    void restoreCar(Car car) {
+        Car previous = carStore.put(car.getId(), car);
+        carIds.add(car.getId());
+        carSetVersion.incrementAndGet();
+        indexFuelEntries(car, 0);
+        fleetAggregates.replace(previous, aggregateOf(previous), car, aggregateOf(car));
+        carIdGenerator.accumulateAndGet(car.getId() + 1, Math::max);
+    }
+
+    /**
+     * Append a fuel entry that already has an id (used when recovering from disk)
+     */
+    void restoreFuelEntry(Long carId, FuelEntry fuelEntry) {
         Car car = carStore.get(carId);
         if (car == null) {
             throw new IllegalArgumentException("Car with id " + carId + " not found");
         }
-        return new ArrayList<>(car.getFuelEntries());
+        FuelAggregate.State before = aggregateOf(car);
+        car.addFuelEntry(fuelEntry);
+        fleetAggregates.replace(car, before, aggregateOf(car));
+        fuelEntryIndex.put(fuelEntry.getId(), carId, car.getFuelEntryCount() - 1);
+        fuelEntryIdGenerator.accumulateAndGet(fuelEntry.getId() + 1, Math::max);
+    }
+
+    private record CarList(long version, List<Car> cars) {
+    }
+
+    long getNextCarId() {
+        return carIdGenerator.get();
+    }
+
+    long getNextFuelEntryId() {
+        return fuelEntryIdGenerator.get();
+    }
+
+    void restoreIdGenerators(long nextCarId, long nextFuelEntryId) {
+        carIdGenerator.accumulateAndGet(nextCarId, Math::max);
+        fuelEntryIdGenerator.accumulateAndGet(nextFuelEntryId, Math::max);
     }
-}
\ No newline at end of file
+}
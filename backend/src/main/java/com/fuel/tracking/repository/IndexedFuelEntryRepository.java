@@ -0,0 +1,55 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Fuel entries addressed by their own id.
+ *
+ * Entries are stored once, in their car's history; this repository goes
+ * through the car repository's entry id index to find the owning car and
+ * the entry's position in that car's history. A single entry is fetched,
+ * updated or deleted without copying the rest of the history, and works the
+ * same whichever storage mode backs the cars.
+ */
+@Repository
+public class IndexedFuelEntryRepository implements FuelEntryRepository {
+
+    private final CarRepository carRepository;
+
+    public IndexedFuelEntryRepository(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    @Override
+    public FuelEntry save(FuelEntry fuelEntry) {
+        if (fuelEntry.getCarId() == null) {
+            throw new IllegalArgumentException("Fuel entry must belong to a car");
+        }
+        if (fuelEntry.getId() == null) {
+            return carRepository.addFuelEntryToCar(fuelEntry.getCarId(), fuelEntry);
+        }
+        return carRepository.updateFuelEntry(fuelEntry.getCarId(), fuelEntry);
+    }
+
+    @Override
+    public Optional<FuelEntry> findById(Long id) {
+        return carRepository.findFuelEntryById(id);
+    }
+
+    @Override
+    public List<FuelEntry> findByCarId(Long carId) {
+        return carRepository.findById(carId)
+                .map(Car::getFuelEntries)
+                .orElse(List.of());
+    }
+
+    @Override
+    public void delete(Long id) {
+        findById(id).ifPresent(fuelEntry -> carRepository.deleteFuelEntry(fuelEntry.getCarId(), id));
+    }
+}
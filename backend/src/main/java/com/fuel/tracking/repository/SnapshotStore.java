@@ -0,0 +1,237 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Compact point-in-time copies of the car store.
+ *
+ * A snapshot holds every car with its fuel history written column by column,
+ * followed by a CRC of the whole file. Files are named after the last LSN
+ * they include, written to a temporary file and renamed into place, so a
+ * crash mid-write never leaves a half snapshot behind.
+ */
+class SnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+
+    private static final int MAGIC = 0x46554c53; // "FULS"
+    private static final int FORMAT_VERSION = 1;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final int SNAPSHOTS_TO_KEEP = 2;
+
+    /**
+     * A car and the part of its history covered by the snapshot
+     */
+    record CarState(Car car, FuelHistory.Snapshot history) {
+    }
+
+    /**
+     * Everything needed to rebuild the store as of a given LSN
+     */
+    record Snapshot(long lsn, long nextCarId, long nextFuelEntryId, List<CarState> cars) {
+    }
+
+    private final Path directory;
+
+    SnapshotStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Write a snapshot and prune old ones
+     *
+     * @return the LSN of the oldest snapshot still kept; log records up to it
+     *         are no longer needed for recovery
+     */
+    long write(Snapshot snapshot) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, snapshot.lsn(), SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+
+        try (OutputStream file = Files.newOutputStream(temporary)) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshot.lsn());
+            out.writeLong(snapshot.nextCarId());
+            out.writeLong(snapshot.nextFuelEntryId());
+            out.writeInt(snapshot.cars().size());
+
+            for (CarState state : snapshot.cars()) {
+                Car car = state.car();
+                out.writeLong(car.getId());
+                out.writeUTF(car.getBrand());
+                out.writeUTF(car.getModel());
+                out.writeInt(car.getYear());
+                out.writeLong(FuelHistory.toEpochNanos(car.getCreatedAt()));
+
+                FuelHistory.Snapshot history = state.history();
+                int size = history.size();
+                out.writeInt(size);
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(history.getId(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(history.getLiters(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeDouble(history.getPricePerLiter(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeInt(history.getOdometer(i));
+                }
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(history.getTimestampNanos(i));
+                }
+            }
+
+            out.flush();
+            long crc = checked.getChecksum().getValue();
+            out.writeLong(crc);
+            out.flush();
+        }
+        forceToDisk(temporary);
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        return deleteOldSnapshots();
+    }
+
+    /**
+     * Load the most recent readable snapshot, falling back to older ones if
+     * the latest is damaged
+     */
+    Optional<LoadedSnapshot> loadLatest() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try {
+                return Optional.of(read(path));
+            } catch (IOException e) {
+                log.warn("Skipping unreadable snapshot {}: {}", path, e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Cars read back from a snapshot, with fully materialized histories
+     */
+    record LoadedSnapshot(long lsn, long nextCarId, long nextFuelEntryId, List<Car> cars) {
+    }
+
+    private LoadedSnapshot read(Path path) throws IOException {
+        try (InputStream file = Files.newInputStream(path)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(file, 64 * 1024), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a snapshot file");
+            }
+            long lsn = in.readLong();
+            long nextCarId = in.readLong();
+            long nextFuelEntryId = in.readLong();
+            int carCount = in.readInt();
+
+            List<Car> cars = new ArrayList<>(carCount);
+            for (int c = 0; c < carCount; c++) {
+                Car car = new Car();
+                car.setId(in.readLong());
+                car.setBrand(in.readUTF());
+                car.setModel(in.readUTF());
+                car.setYear(in.readInt());
+                car.setCreatedAt(FuelHistory.fromEpochNanos(in.readLong()));
+
+                int size = in.readInt();
+                long[] ids = new long[size];
+                double[] liters = new double[size];
+                double[] prices = new double[size];
+                int[] odometers = new int[size];
+                for (int i = 0; i < size; i++) {
+                    ids[i] = in.readLong();
+                }
+                for (int i = 0; i < size; i++) {
+                    liters[i] = in.readDouble();
+                }
+                for (int i = 0; i < size; i++) {
+                    prices[i] = in.readDouble();
+                }
+                for (int i = 0; i < size; i++) {
+                    odometers[i] = in.readInt();
+                }
+                FuelHistory history = car.getFuelHistory();
+                for (int i = 0; i < size; i++) {
+                    history.append(ids[i], liters[i], prices[i], odometers[i],
+                            FuelHistory.fromEpochNanos(in.readLong()));
+                }
+                cars.add(car);
+            }
+
+            long expectedCrc = checked.getChecksum().getValue();
+            if (in.readLong() != expectedCrc) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            return new LoadedSnapshot(lsn, nextCarId, nextFuelEntryId, cars);
+        }
+    }
+
+    private long deleteOldSnapshots() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        int keepFrom = Math.max(0, snapshots.size() - SNAPSHOTS_TO_KEEP);
+        for (int i = 0; i < keepFrom; i++) {
+            Files.deleteIfExists(snapshots.get(i));
+        }
+        return snapshotLsn(snapshots.get(keepFrom));
+    }
+
+    private static long snapshotLsn(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing(Path::getFileName))
+                    .toList();
+        }
+    }
+
+    private static void forceToDisk(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+}
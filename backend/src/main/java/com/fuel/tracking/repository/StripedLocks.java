@@ -0,0 +1,55 @@
+package com.fuel.tracking.repository;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks shared out between cars by id.
+ *
+ * Writes to one car are serialized by its lock, while writes to different
+ * cars almost always land on different locks and run in parallel. The pool
+ * size is fixed, so memory does not grow with the number of cars, and
+ * lockAll gives a consistent cut across every car for snapshots.
+ */
+final class StripedLocks {
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Enough stripes that two busy cars rarely share a lock
+     */
+    static StripedLocks forAvailableProcessors() {
+        return new StripedLocks(Math.max(64, Runtime.getRuntime().availableProcessors() * 16));
+    }
+
+    Lock lockFor(long carId) {
+        // Spread sequential ids across the pool
+        long hash = carId * 0x9E3779B97F4A7C15L;
+        return locks[(int) (hash >>> 32) & mask];
+    }
+
+    /**
+     * Take every lock, always in the same order so two callers cannot deadlock
+     */
+    void lockAll() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    void unlockAll() {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of the repository changes stored in the write-ahead log
+ */
+final class WalRecords {
+
+    // Record types
+    static final byte SAVE_CAR = 1;
+    static final byte ADD_FUEL_ENTRY = 2;
+    static final byte DELETE_CAR = 3;
+    static final byte UPDATE_FUEL_ENTRY = 4; // Same payload as ADD_FUEL_ENTRY
+    static final byte DELETE_FUEL_ENTRY = 5;
+
+    private WalRecords() {
+    }
+
+    static DataInputStream reader(ByteBuffer payload) {
+        return new DataInputStream(new ByteArrayInputStream(
+                payload.array(), payload.arrayOffset() + payload.position(), payload.remaining()));
+    }
+
+    static byte[] encodeCar(Car car) {
+        return encode(out -> {
+            out.writeLong(car.getId());
+            out.writeUTF(car.getBrand());
+            out.writeUTF(car.getModel());
+            out.writeInt(car.getYear());
+            out.writeLong(FuelHistory.toEpochNanos(car.getCreatedAt()));
+        });
+    }
+
+    static Car decodeCar(DataInputStream in) throws IOException {
+        Car car = new Car();
+        car.setId(in.readLong());
+        car.setBrand(in.readUTF());
+        car.setModel(in.readUTF());
+        car.setYear(in.readInt());
+        car.setCreatedAt(FuelHistory.fromEpochNanos(in.readLong()));
+        return car;
+    }
+
+    static byte[] encodeCarId(Long carId) {
+        return encode(out -> out.writeLong(carId));
+    }
+
+    static byte[] encodeFuelEntry(Long carId, FuelEntry fuelEntry) {
+        return encode(out -> {
+            out.writeLong(carId);
+            out.writeLong(fuelEntry.getId());
+            out.writeDouble(fuelEntry.getLiters());
+            out.writeDouble(fuelEntry.getPricePerLiter());
+            out.writeInt(fuelEntry.getOdometer());
+            out.writeLong(FuelHistory.toEpochNanos(fuelEntry.getTimestamp()));
+        });
+    }
+
+    static byte[] encodeFuelEntryId(Long carId, Long fuelEntryId) {
+        return encode(out -> {
+            out.writeLong(carId);
+            out.writeLong(fuelEntryId);
+        });
+    }
+
+    static FuelEntry decodeFuelEntry(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        FuelEntry fuelEntry = new FuelEntry(in.readDouble(), in.readDouble(), in.readInt());
+        fuelEntry.setId(id);
+        fuelEntry.setTimestamp(FuelHistory.fromEpochNanos(in.readLong()));
+        return fuelEntry;
+    }
+
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static byte[] encode(RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            writer.write(new DataOutputStream(bytes));
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.fuel.tracking.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segment-based write-ahead log with group commit.
+ *
+ * Records are appended to an in-memory buffer by the calling threads and a
+ * single writer thread flushes everything buffered so far with one write and
+ * one fsync, so concurrent writers share the cost of each sync.
+ *
+ * Record layout: [int payloadLength][int crc][long lsn][byte type][payload],
+ * where the CRC covers lsn, type and payload. Segment files are named after
+ * the LSN of their first record, so a segment covers every LSN up to the
+ * first LSN of the next one.
+ */
+class WriteAheadLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES + 1;
+    private static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Callback for records read back during recovery
+     */
+    interface RecordHandler {
+        void handle(long lsn, byte type, ByteBuffer payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final long segmentSize;
+
+    private final Object monitor = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+    private long nextLsn = 1;
+    private long durableLsn;
+    private IOException failure;
+    private boolean closed;
+
+    private FileChannel segment;
+    private long segmentBytes;
+    private Thread writer;
+
+    WriteAheadLog(Path directory, long segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Replay every record with an LSN above afterLsn, in order. A torn or
+     * corrupt record ends the log: the segment is truncated there and any
+     * later segment is discarded. Must be called before start().
+     *
+     * @return the last LSN found in the log, or afterLsn if there is none above it
+     */
+    long recover(long afterLsn, RecordHandler handler) throws IOException {
+        List<Path> segments = listSegments();
+        long lastLsn = 0;
+
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+
+            // Segments entirely covered by the snapshot are skipped without reading them
+            if (i + 1 < segments.size() && firstLsn(segments.get(i + 1)) - 1 <= afterLsn) {
+                continue;
+            }
+
+            SegmentScan scan = replaySegment(path, afterLsn, lastLsn, handler);
+            lastLsn = scan.lastLsn();
+            if (!scan.torn()) {
+                continue;
+            }
+
+            // Torn tail: keep what was valid and drop everything after it
+            log.warn("Truncating write-ahead log segment {} at byte {}", path, scan.validBytes());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(scan.validBytes());
+                channel.force(true);
+            }
+            for (int j = i + 1; j < segments.size(); j++) {
+                log.warn("Discarding write-ahead log segment {} after corrupt record", segments.get(j));
+                Files.deleteIfExists(segments.get(j));
+            }
+            break;
+        }
+
+        lastLsn = Math.max(lastLsn, afterLsn);
+        nextLsn = lastLsn + 1;
+        durableLsn = lastLsn;
+        return lastLsn;
+    }
+
+    private record SegmentScan(long validBytes, long lastLsn, boolean torn) {
+    }
+
+    private SegmentScan replaySegment(Path path, long afterLsn, long previousLsn, RecordHandler handler)
+            throws IOException {
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            data = ByteBuffer.allocate((int) channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // Read the whole segment
+            }
+            data.flip();
+        }
+
+        CRC32 crc = new CRC32();
+        long lastLsn = previousLsn;
+        while (data.hasRemaining()) {
+            int recordStart = data.position();
+            if (data.remaining() < HEADER_SIZE) {
+                return new SegmentScan(recordStart, lastLsn, true);
+            }
+            int payloadLength = data.getInt();
+            int expectedCrc = data.getInt();
+            if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_SIZE
+                    || data.remaining() < Long.BYTES + 1 + payloadLength) {
+                return new SegmentScan(recordStart, lastLsn, true);
+            }
+
+            ByteBuffer body = data.slice(data.position(), Long.BYTES + 1 + payloadLength);
+            crc.reset();
+            crc.update(body.duplicate());
+            long lsn = body.getLong();
+            // LSNs are strictly increasing; anything else is leftover garbage
+            if ((int) crc.getValue() != expectedCrc || lsn <= lastLsn) {
+                return new SegmentScan(recordStart, lastLsn, true);
+            }
+            byte type = body.get();
+            data.position(data.position() + Long.BYTES + 1 + payloadLength);
+
+            lastLsn = lsn;
+            if (lsn > afterLsn) {
+                handler.handle(lsn, type, body.slice());
+            }
+        }
+        return new SegmentScan(data.limit(), lastLsn, false);
+    }
+
+    /**
+     * Open a fresh segment and start the group-commit writer thread
+     */
+    void start() throws IOException {
+        Files.createDirectories(directory);
+        openSegment(nextLsn);
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Buffer a record for the next group commit
+     *
+     * @return the LSN assigned to the record
+     */
+    long append(byte type, byte[] payload) {
+        synchronized (monitor) {
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+
+            long lsn = nextLsn++;
+            CRC32 crc = new CRC32();
+            ByteBuffer body = ByteBuffer.allocate(Long.BYTES + 1)
+                    .putLong(lsn)
+                    .put(type)
+                    .flip();
+            crc.update(body.duplicate());
+            crc.update(payload);
+
+            ensureCapacity(HEADER_SIZE + payload.length);
+            pending.putInt(payload.length)
+                    .putInt((int) crc.getValue())
+                    .put(body)
+                    .put(payload);
+
+            monitor.notifyAll();
+            return lsn;
+        }
+    }
+
+    /**
+     * Block until the record with the given LSN has been fsynced
+     */
+    void awaitDurable(long lsn) {
+        synchronized (monitor) {
+            boolean interrupted = false;
+            while (durableLsn < lsn && failure == null) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (durableLsn < lsn) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+        }
+    }
+
+    /**
+     * LSN of the last record appended, durable or not
+     */
+    long getLastLsn() {
+        synchronized (monitor) {
+            return nextLsn - 1;
+        }
+    }
+
+    /**
+     * Delete closed segments whose records all have an LSN up to the given one
+     */
+    void deleteSegmentsUpTo(long lsn) throws IOException {
+        List<Path> segments = listSegments();
+        // The last segment is the active one and is never deleted
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (firstLsn(segments.get(i + 1)) - 1 > lsn) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            long batchFirstLsn;
+            long batchLastLsn;
+            synchronized (monitor) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        monitor.wait();
+                    } catch (InterruptedException e) {
+                        // Only close() stops the writer
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                ByteBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                batchFirstLsn = durableLsn + 1;
+                batchLastLsn = nextLsn - 1;
+            }
+
+            try {
+                writing.flip();
+                if (segmentBytes >= segmentSize) {
+                    segment.close();
+                    openSegment(batchFirstLsn);
+                }
+                while (writing.hasRemaining()) {
+                    segmentBytes += segment.write(writing);
+                }
+                segment.force(false);
+                writing.clear();
+            } catch (IOException e) {
+                log.error("Write-ahead log write failed", e);
+                synchronized (monitor) {
+                    failure = e;
+                    monitor.notifyAll();
+                }
+                return;
+            }
+
+            synchronized (monitor) {
+                durableLsn = batchLastLsn;
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private void openSegment(long firstLsn) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        segment = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        segmentBytes = segment.size();
+    }
+
+    private List<Path> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(WriteAheadLog::isSegment)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Flush everything still buffered, then stop the writer
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (monitor) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            monitor.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+}
@@ -9,6 +9,8 @@ import java.util.List;
 @Service
 public class CarService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final CarRepository carRepository;
 
     public CarService(CarRepository carRepository) {
@@ -20,7 +22,25 @@ public class CarService {
         return carRepository.save(car);
     }
 
-    public Car getCarById(Long id) {
+    /**
+     * Create many cars at once. Every car is checked before any is saved, so
+     * either all are created or none; the cars get consecutive ids in order.
+     */
+    public List<Car> createCars(List<Car> cars) {
+        if (cars.isEmpty()) {
+            throw new IllegalArgumentException("At least one car is required");
+        }
+        for (int i = 0; i < cars.size(); i++) {
+            try {
+                validateCar(cars.get(i));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Car " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return carRepository.saveAll(cars);
+    }
+
+    public Car getCarById(long id) {
         return carRepository.findById(id)
                 .orElseThrow(() -> new CarNotFoundException("Car not found with id: " + id));
     }
@@ -29,7 +49,31 @@ public class CarService {
         return carRepository.findAll();
     }
 
-    public boolean carExists(Long id) {
+    /**
+     * Up to limit cars in id order after the given id (from the start when it
+     * is null). Reads one car past the page to tell whether another follows.
+     */
+    public CarPage getCarPage(Long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        List<Car> cars = carRepository.findPage(after, limit + 1);
+        if (cars.size() <= limit) {
+            return new CarPage(cars, null);
+        }
+        List<Car> page = cars.subList(0, limit);
+        return new CarPage(page, page.get(limit - 1).getId());
+    }
+
+    /**
+     * Version of the whole car list, which goes up whenever any car or fuel
+     * entry changes
+     */
+    public long getFleetVersion() {
+        return carRepository.getFleetAggregates().getVersion();
+    }
+
+    public boolean carExists(long id) {
         return carRepository.existsById(id);
     }
 
@@ -45,6 +89,12 @@ public class CarService {
         }
     }
 
+    /**
+     * A page of cars and the cursor of the next one, null on the last page
+     */
+    public record CarPage(List<Car> cars, Long nextCursor) {
+    }
+
     // Custom exception for better error handling
     public static class CarNotFoundException extends RuntimeException {
         public CarNotFoundException(String message) {
@@ -0,0 +1,195 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetRecomputeProgress;
+import com.fuel.tracking.model.FuelHistory;
+import com.fuel.tracking.repository.CarRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recomputes every car's fuel stats from its full history, in parallel, and
+ * stores the results in the stats cache.
+ *
+ * The fleet is split in halves recursively down to small batches of cars on
+ * a fork-join pool with one worker per core. Idle workers steal batches from
+ * busy ones, so cars with long histories do not leave other cores waiting.
+ * Cars share no state, so the rebuild scales with the number of cores.
+ */
+@Service
+public class FleetRecomputeService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FleetRecomputeService.class);
+
+    // Cars per leaf task; small enough to keep every worker busy until the end
+    private static final int BATCH_SIZE = 32;
+
+    private final CarRepository carRepository;
+    private final FuelService fuelService;
+    private final FuelStatsCache statsCache;
+    private final ForkJoinPool pool;
+
+    private final AtomicReference<Job> current = new AtomicReference<>();
+
+    public FleetRecomputeService(CarRepository carRepository, FuelService fuelService, FuelStatsCache statsCache) {
+        this.carRepository = carRepository;
+        this.fuelService = fuelService;
+        this.statsCache = statsCache;
+        this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start recomputing the whole fleet in the background. If a recompute is
+     * already running, its progress is returned instead of starting another.
+     *
+     * The job is published only once its cars are known, so its progress
+     * never shows a running job with no total. If it cannot be handed to the
+     * pool it is marked FAILED, never left RUNNING with nothing behind it.
+     */
+    public FleetRecomputeProgress start() {
+        while (true) {
+            Job running = current.get();
+            if (running != null && !running.done.isDone()) {
+                return running.progress();
+            }
+            List<Car> cars = new ArrayList<>(carRepository.findAll());
+            Job job = new Job(cars.size());
+            if (current.compareAndSet(running, job)) {
+                try {
+                    pool.execute(() -> run(job, cars));
+                } catch (RuntimeException | Error e) {
+                    fail(job, e);
+                    throw e;
+                }
+                return job.progress();
+            }
+        }
+    }
+
+    /**
+     * Progress of the running or most recent recompute
+     */
+    public FleetRecomputeProgress getProgress() {
+        Job job = current.get();
+        return job != null ? job.progress() : FleetRecomputeProgress.idle();
+    }
+
+    /**
+     * Wait for the running recompute, if any, to finish
+     */
+    public FleetRecomputeProgress awaitCompletion(Duration timeout) throws InterruptedException, TimeoutException {
+        Job job = current.get();
+        if (job != null) {
+            try {
+                job.done.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                // Recorded on the job as FAILED
+            }
+        }
+        return getProgress();
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private void run(Job job, List<Car> cars) {
+        try {
+            new RecomputeTask(job, cars, 0, cars.size()).invoke();
+            job.finish(FleetRecomputeProgress.Status.COMPLETED);
+            FleetRecomputeProgress progress = job.progress();
+            log.info("Recomputed stats for {} cars ({} entries) in {} ms, {} cars/s",
+                    progress.getCompletedCars(), progress.getCompletedEntries(), progress.getElapsedMillis(),
+                    Math.round(progress.getCarsPerSecond()));
+            job.done.complete(null);
+        } catch (RuntimeException | Error e) {
+            fail(job, e);
+        }
+    }
+
+    private void fail(Job job, Throwable e) {
+        log.error("Fleet stats recompute failed", e);
+        job.finish(FleetRecomputeProgress.Status.FAILED);
+        job.done.completeExceptionally(e);
+    }
+
+    private void recompute(Job job, Car car) {
+        FuelHistory.Snapshot history = car.getFuelHistory().snapshot();
+        statsCache.put(car.getId(), history.version(), fuelService.recalculateFuelStats(history));
+        job.completedCars.increment();
+        job.completedEntries.add(history.size());
+    }
+
+    private class RecomputeTask extends RecursiveAction {
+        private final Job job;
+        private final List<Car> cars;
+        private final int from;
+        private final int to;
+
+        RecomputeTask(Job job, List<Car> cars, int from, int to) {
+            this.job = job;
+            this.cars = cars;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SIZE) {
+                for (int i = from; i < to; i++) {
+                    recompute(job, cars.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RecomputeTask(job, cars, from, middle), new RecomputeTask(job, cars, middle, to));
+        }
+    }
+
+    private static class Job {
+        final LongAdder completedCars = new LongAdder();
+        final LongAdder completedEntries = new LongAdder();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startedNanos = System.nanoTime();
+        final long totalCars;
+
+        volatile FleetRecomputeProgress.Status status = FleetRecomputeProgress.Status.RUNNING;
+        volatile LocalDateTime finishedAt;
+        volatile long finishedNanos;
+
+        Job(long totalCars) {
+            this.totalCars = totalCars;
+        }
+
+        void finish(FleetRecomputeProgress.Status status) {
+            this.finishedNanos = System.nanoTime();
+            this.finishedAt = LocalDateTime.now();
+            this.status = status;
+        }
+
+        FleetRecomputeProgress progress() {
+            FleetRecomputeProgress.Status status = this.status;
+            long end = status == FleetRecomputeProgress.Status.RUNNING ? System.nanoTime() : finishedNanos;
+            return new FleetRecomputeProgress(status, totalCars, completedCars.sum(), completedEntries.sum(),
+                    startedAt, finishedAt, TimeUnit.NANOSECONDS.toMillis(end - startedNanos));
+        }
+    }
+}
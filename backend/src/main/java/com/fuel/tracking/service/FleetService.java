@@ -0,0 +1,140 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.FleetAggregate;
+import com.fuel.tracking.model.FleetAggregates;
+import com.fuel.tracking.model.FleetStats;
+import com.fuel.tracking.repository.CarRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+@Service
+public class FleetService {
+
+    private final CarRepository carRepository;
+
+    public FleetService(CarRepository carRepository) {
+        this.carRepository = carRepository;
+    }
+
+    /**
+     * Fuel statistics across all cars, read from the fleet aggregate the
+     * repository keeps current on every write, O(1) regardless of fleet size
+     */
+    public FleetStats calculateFleetStats() {
+        FleetAggregate aggregate = carRepository.getFleetAggregates().getTotal();
+        return buildFleetStats(aggregate.getCarCount(), aggregate.getEntryCount(), aggregate.getTotalLiters(),
+                aggregate.getTotalCost(), aggregate.getConsumptionSum(), aggregate.getSegmentCount());
+    }
+
+    /**
+     * Fuel statistics per group of cars sharing the given fields, any of
+     * brand, model and year. Folded from the per (brand, model, year)
+     * aggregates, so the cost grows with the number of groups, not of cars
+     * or entries. Groups with no cars left are skipped.
+     */
+    public List<FleetStats> calculateFleetStats(List<String> groupBy) {
+        Set<GroupField> fields = parseGroupBy(groupBy);
+
+        Map<FleetAggregates.Group, GroupTotals> folded = new HashMap<>();
+        carRepository.getFleetAggregates().getGroups().forEach((group, aggregate) -> {
+            FleetAggregates.Group key = new FleetAggregates.Group(
+                    fields.contains(GroupField.BRAND) ? group.brand() : null,
+                    fields.contains(GroupField.MODEL) ? group.model() : null,
+                    fields.contains(GroupField.YEAR) ? group.year() : null);
+            folded.computeIfAbsent(key, k -> new GroupTotals()).add(aggregate);
+        });
+
+        List<FleetStats> result = new ArrayList<>();
+        folded.forEach((key, totals) -> {
+            if (totals.carCount == 0) {
+                return;
+            }
+            FleetStats stats = buildFleetStats(totals.carCount, totals.entryCount, totals.totalLiters,
+                    totals.totalCost, totals.consumptionSum, totals.segmentCount);
+            stats.setBrand(key.brand());
+            stats.setModel(key.model());
+            stats.setYear(key.year());
+            result.add(stats);
+        });
+        result.sort(Comparator.comparing(FleetStats::getBrand, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(FleetStats::getModel, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                .thenComparing(FleetStats::getYear, Comparator.nullsFirst(Comparator.<Integer>naturalOrder())));
+        return result;
+    }
+
+    private Set<GroupField> parseGroupBy(List<String> groupBy) {
+        Set<GroupField> fields = EnumSet.noneOf(GroupField.class);
+        for (String name : groupBy) {
+            try {
+                fields.add(GroupField.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                        "Cannot group by '" + name.trim() + "', expected any of brand, model, year");
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("groupBy needs at least one of brand, model, year");
+        }
+        return fields;
+    }
+
+    private FleetStats buildFleetStats(long totalCars, long totalEntries, double totalFuel,
+            double totalCost, double consumptionSum, long segmentCount) {
+        if (totalEntries == 0) {
+            return FleetStats.builder()
+                    .totalCars(totalCars)
+                    .build();
+        }
+
+        double averageConsumption = segmentCount == 0 ? 0.0 : consumptionSum / segmentCount;
+        double averagePricePerLiter = totalFuel > 0 ? totalCost / totalFuel : 0;
+
+        return FleetStats.builder()
+                .totalCars(totalCars)
+                .totalEntries(totalEntries)
+                .totalFuelLiters(round(totalFuel, 1))
+                .totalCost(round(totalCost, 2))
+                .averageConsumption(round(averageConsumption, 1))
+                .averagePricePerLiter(round(averagePricePerLiter, 2))
+                .costPer100km(round(averageConsumption * averagePricePerLiter, 2))
+                .build();
+    }
+
+    private double round(double value, int decimalPlaces) {
+        double scale = Math.pow(10, decimalPlaces);
+        return Math.round(value * scale) / scale;
+    }
+
+    private enum GroupField {
+        BRAND, MODEL, YEAR
+    }
+
+    /**
+     * Sums of the (brand, model, year) aggregates folded into one group
+     */
+    private static class GroupTotals {
+        long carCount;
+        long entryCount;
+        long segmentCount;
+        double totalLiters;
+        double totalCost;
+        double consumptionSum;
+
+        void add(FleetAggregate aggregate) {
+            carCount += aggregate.getCarCount();
+            entryCount += aggregate.getEntryCount();
+            segmentCount += aggregate.getSegmentCount();
+            totalLiters += aggregate.getTotalLiters();
+            totalCost += aggregate.getTotalCost();
+            consumptionSum += aggregate.getConsumptionSum();
+        }
+    }
+}
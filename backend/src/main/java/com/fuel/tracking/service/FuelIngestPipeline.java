@@ -0,0 +1,244 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.repository.CarRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous write path for single fuel entries. Callers publish into a
+ * bounded ring buffer, preallocated per shard, and get a future. One writer
+ * thread per shard drains up to a batch at a time, adds it with a single
+ * repository call (so durable storage waits for one fsync per batch) and
+ * then completes the futures. A car always maps to the same shard, so its
+ * entries are applied in the order they were published. Publishers block
+ * while their shard's buffer is full.
+ *
+ * Enabled with fuel.ingest.async.enabled=true.
+ */
+@Component
+@ConditionalOnProperty(name = "fuel.ingest.async.enabled", havingValue = "true")
+public class FuelIngestPipeline implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FuelIngestPipeline.class);
+
+    private final CarRepository carRepository;
+    private final Shard[] shards;
+
+    public FuelIngestPipeline(CarRepository carRepository,
+            @Value("${fuel.ingest.async.shards:4}") int shardCount,
+            @Value("${fuel.ingest.async.buffer-size:4096}") int bufferSize,
+            @Value("${fuel.ingest.async.batch-size:256}") int batchSize) {
+        if (shardCount < 1 || bufferSize < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Shards, buffer size and batch size must be positive");
+        }
+        this.carRepository = carRepository;
+        this.shards = new Shard[shardCount];
+        // Power-of-two capacity, so a slot is a mask of the sequence number
+        int capacity = Integer.highestOneBit(Math.max(bufferSize - 1, 1)) << 1;
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(capacity, Math.min(batchSize, capacity));
+            Thread writer = new Thread(shards[i], "fuel-ingest-" + i);
+            writer.setDaemon(true);
+            shards[i].writer = writer;
+            writer.start();
+        }
+    }
+
+    /**
+     * Queue an entry for the car. The future completes with the entry, id
+     * assigned, once it is applied (and durable, with durable storage), or
+     * fails as the synchronous path would: CarNotFoundException (404) if the
+     * car is gone by the time the entry is applied, IllegalArgumentException
+     * (400) if the entry is rejected.
+     */
+    public CompletableFuture<FuelEntry> publish(Long carId, FuelEntry fuelEntry) {
+        return shards[Math.floorMod(Long.hashCode(carId), shards.length)].publish(carId, fuelEntry);
+    }
+
+    /**
+     * Entries published but not yet taken by a writer, across all shards
+     */
+    public int getPending() {
+        int pending = 0;
+        for (Shard shard : shards) {
+            pending += shard.pending();
+        }
+        return pending;
+    }
+
+    /**
+     * Stop taking entries, let the writers apply what is already queued and
+     * wait for them to finish
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+        for (Shard shard : shards) {
+            shard.writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final long[] carIds;
+        private final FuelEntry[] entries;
+        private final CompletableFuture<FuelEntry>[] acks;
+        private final int mask;
+
+        // The writer's batch, reused for every drain
+        private final long[] batchCarIds;
+        private final FuelEntry[] batchEntries;
+        private final CompletableFuture<FuelEntry>[] batchAcks;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        private final Condition notFull = lock.newCondition();
+        private long head; // Next slot the writer takes
+        private long tail; // Next slot a publisher fills
+        private boolean closed;
+
+        private Thread writer;
+
+        @SuppressWarnings("unchecked")
+        Shard(int capacity, int batchSize) {
+            this.carIds = new long[capacity];
+            this.entries = new FuelEntry[capacity];
+            this.acks = new CompletableFuture[capacity];
+            this.mask = capacity - 1;
+            this.batchCarIds = new long[batchSize];
+            this.batchEntries = new FuelEntry[batchSize];
+            this.batchAcks = new CompletableFuture[batchSize];
+        }
+
+        CompletableFuture<FuelEntry> publish(long carId, FuelEntry fuelEntry) {
+            CompletableFuture<FuelEntry> ack = new CompletableFuture<>();
+            lock.lock();
+            try {
+                while (tail - head == carIds.length && !closed) {
+                    notFull.awaitUninterruptibly();
+                }
+                if (closed) {
+                    throw new IllegalStateException("Fuel entry ingestion is shut down");
+                }
+                int slot = (int) (tail & mask);
+                carIds[slot] = carId;
+                entries[slot] = fuelEntry;
+                acks[slot] = ack;
+                tail++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+            return ack;
+        }
+
+        int pending() {
+            lock.lock();
+            try {
+                return (int) (tail - head);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                notEmpty.signalAll();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            int count;
+            while ((count = take()) > 0) {
+                try {
+                    write(count);
+                } catch (RuntimeException e) {
+                    log.error("Failed to apply a batch of {} fuel entries", count, e);
+                    for (int i = 0; i < count; i++) {
+                        batchAcks[i].completeExceptionally(e);
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    batchEntries[i] = null;
+                    batchAcks[i] = null;
+                }
+            }
+        }
+
+        /**
+         * Move up to a batch of entries out of the ring, waiting for one if
+         * it is empty. Returns 0 once the shard is closed and drained.
+         */
+        private int take() {
+            lock.lock();
+            try {
+                while (head == tail && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                int count = (int) Math.min(tail - head, batchEntries.length);
+                for (int i = 0; i < count; i++) {
+                    int slot = (int) (head & mask);
+                    batchCarIds[i] = carIds[slot];
+                    batchEntries[i] = entries[slot];
+                    batchAcks[i] = acks[slot];
+                    entries[slot] = null;
+                    acks[slot] = null;
+                    head++;
+                }
+                notFull.signalAll();
+                return count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void write(int count) {
+            Map<Long, List<FuelEntry>> entriesByCar = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                entriesByCar.computeIfAbsent(batchCarIds[i], carId -> new ArrayList<>()).add(batchEntries[i]);
+            }
+
+            Map<Long, List<String>> errorsByCar = carRepository.addFuelEntriesToCars(entriesByCar);
+
+            // Each car's errors are in the order its entries appear in the batch
+            Map<Long, Integer> positions = new HashMap<>();
+            Map<Long, Boolean> missingCars = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                long carId = batchCarIds[i];
+                int position = positions.merge(carId, 1, Integer::sum) - 1;
+                String error = errorsByCar.get(carId).get(position);
+                if (error == null) {
+                    batchAcks[i].complete(batchEntries[i]);
+                } else if (missingCars.computeIfAbsent(carId, id -> !carRepository.existsById(id))) {
+                    // Deleted after the caller checked it existed
+                    batchAcks[i].completeExceptionally(
+                            new CarService.CarNotFoundException("Car not found with id: " + carId));
+                } else {
+                    batchAcks[i].completeExceptionally(new IllegalArgumentException(error));
+                }
+            }
+        }
+    }
+}
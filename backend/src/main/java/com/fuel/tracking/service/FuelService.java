@@ -1,43 +1,305 @@
 package com.fuel.tracking.service;
 
+import com.fuel.tracking.exception.ResourceNotFoundException;
 import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelAggregate;
 import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
 import com.fuel.tracking.model.FuelStats;
 import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.FuelEntryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
 
 @Service
 public class FuelService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final CarRepository carRepository;
+    private final FuelEntryRepository fuelEntryRepository;
+    private final FuelStatsCache statsCache;
+
+    // Batches single entry writes when async ingestion is enabled, otherwise null
+    private final FuelIngestPipeline ingestPipeline;
+
+    public FuelService(CarRepository carRepository, FuelEntryRepository fuelEntryRepository,
+            FuelStatsCache statsCache) {
+        this(carRepository, fuelEntryRepository, statsCache, null);
+    }
 
-    public FuelService(CarRepository carRepository) {
+    @Autowired
+    public FuelService(CarRepository carRepository, FuelEntryRepository fuelEntryRepository,
+            FuelStatsCache statsCache, @Nullable FuelIngestPipeline ingestPipeline) {
         this.carRepository = carRepository;
+        this.fuelEntryRepository = fuelEntryRepository;
+        this.statsCache = statsCache;
+        this.ingestPipeline = ingestPipeline;
     }
 
     public FuelEntry addFuelEntry(Long carId, FuelEntry fuelEntry) {
         validateFuelEntry(fuelEntry);
 
         // Check if car exists
-        Car car = carRepository.findById(carId)
-                .orElseThrow(() -> new CarService.CarNotFoundException("Car not found with id: " + carId));
+        if (!carRepository.existsById(carId)) {
+            throw new CarService.CarNotFoundException("Car not found with id: " + carId);
+        }
 
-        // Validate odometer reading is increasing
-        validateOdometerReading(car, fuelEntry.getOdometer());
+        if (ingestPipeline != null) {
+            // Applied with other queued entries by the car's shard writer
+            return await(ingestPipeline.publish(carId, fuelEntry));
+        }
 
+        // The repository checks the odometer is increasing and appends atomically
         return carRepository.addFuelEntryToCar(carId, fuelEntry);
     }
 
+    private static FuelEntry await(CompletableFuture<FuelEntry> ack) {
+        try {
+            return ack.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Add entries for any number of cars, each carrying its car id. Entries
+     * are grouped by car and each car's group is appended in the given order
+     * under one hold of its lock; durable stores wait for one fsync for the
+     * whole call. Returns one error message per entry, null for each entry
+     * that was added.
+     */
+    public List<String> addFuelEntries(List<FuelEntry> fuelEntries) {
+        List<String> errors = new ArrayList<>(Collections.nCopies(fuelEntries.size(), null));
+
+        Map<Long, List<Integer>> positionsByCar = new LinkedHashMap<>();
+        for (int i = 0; i < fuelEntries.size(); i++) {
+            FuelEntry fuelEntry = fuelEntries.get(i);
+            try {
+                validateFuelEntry(fuelEntry);
+            } catch (IllegalArgumentException e) {
+                errors.set(i, e.getMessage());
+                continue;
+            }
+            positionsByCar.computeIfAbsent(fuelEntry.getCarId(), carId -> new ArrayList<>()).add(i);
+        }
+
+        Map<Long, List<FuelEntry>> entriesByCar = new LinkedHashMap<>();
+        positionsByCar.forEach((carId, positions) -> {
+            if (!carRepository.existsById(carId)) {
+                positions.forEach(i -> errors.set(i, "Car not found with id: " + carId));
+                return;
+            }
+            List<FuelEntry> batch = new ArrayList<>(positions.size());
+            positions.forEach(i -> batch.add(fuelEntries.get(i)));
+            entriesByCar.put(carId, batch);
+        });
+
+        carRepository.addFuelEntriesToCars(entriesByCar).forEach((carId, carErrors) -> {
+            List<Integer> positions = positionsByCar.get(carId);
+            for (int j = 0; j < positions.size(); j++) {
+                errors.set(positions.get(j), carErrors.get(j));
+            }
+        });
+        return errors;
+    }
+
+    /**
+     * A single fuel entry of the given car, looked up by id
+     */
+    public FuelEntry getFuelEntry(Long carId, Long fuelEntryId) {
+        if (!carRepository.existsById(carId)) {
+            throw new CarService.CarNotFoundException("Car not found with id: " + carId);
+        }
+        return fuelEntryRepository.findById(fuelEntryId)
+                .filter(fuelEntry -> carId.equals(fuelEntry.getCarId()))
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "Fuel entry not found with id: " + fuelEntryId + " for car: " + carId));
+    }
+
+    /**
+     * Correct a fuel entry in place. The odometer reading must stay between
+     * the readings of the entries before and after it.
+     */
+    public FuelEntry updateFuelEntry(Long carId, Long fuelEntryId, FuelEntry fuelEntry) {
+        validateFuelEntry(fuelEntry);
+        getFuelEntry(carId, fuelEntryId);
+
+        fuelEntry.setId(fuelEntryId);
+        fuelEntry.setCarId(carId);
+        return fuelEntryRepository.save(fuelEntry);
+    }
+
+    public void deleteFuelEntry(Long carId, Long fuelEntryId) {
+        getFuelEntry(carId, fuelEntryId);
+        fuelEntryRepository.delete(fuelEntryId);
+    }
+
+    /**
+     * Fuel statistics read from the running aggregate kept on the car,
+     * O(1) regardless of how many entries the car has. Served from the stats
+     * cache while the car is unchanged, so repeated reads build nothing; the
+     * returned stats may be shared and must not be modified.
+     */
     public FuelStats calculateFuelStats(Long carId) {
+        FuelHistory.Snapshot history = getHistory(carId);
+
+        return statsCache.get(carId, history.version()).orElseGet(() -> {
+            FuelAggregate aggregate = new FuelAggregate(history.aggregate());
+            FuelStats stats = buildFuelStats(aggregate.getTotalLiters(), aggregate.getTotalCost(),
+                    aggregate.getAverageConsumption(), aggregate.getEntryCount());
+            statsCache.put(carId, history.version(), stats);
+            return stats;
+        });
+    }
+
+    /**
+     * Fuel statistics over the entries recorded in [from, to); either bound
+     * may be null. The window is binary-searched in the time-ordered history
+     * and totalled from its running totals, so the cost does not grow with
+     * the size of the window or of the history.
+     */
+    public FuelStats calculateFuelStats(Long carId, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must not be after 'to'");
+        }
+
+        FuelHistory.Snapshot history = getHistory(carId);
+        long fromNanos = from != null ? toBoundNanos(from) : Long.MIN_VALUE;
+        long toNanos = to != null ? toBoundNanos(to) : Long.MAX_VALUE;
+
+        if (history.isTimeOrdered()) {
+            return buildFuelStats(history.rangeTotals(
+                    history.timestampLowerBound(fromNanos), history.timestampLowerBound(toNanos)));
+        }
+
+        // Some entry was recorded out of time order, so the window is not one contiguous range
+        FuelAggregate window = new FuelAggregate();
+        for (int i = 0; i < history.size(); i++) {
+            long timestamp = history.getTimestampNanos(i);
+            if (timestamp >= fromNanos && timestamp < toNanos) {
+                window.add(history.getLiters(i), history.getTotalCost(i), history.getOdometer(i));
+            }
+        }
+        return buildFuelStats(window.getTotalLiters(), window.getTotalCost(),
+                window.getAverageConsumption(), window.getEntryCount());
+    }
+
+    /**
+     * A window bound in epoch nanos. Bounds outside the range a long can hold
+     * are clamped to its ends, which every stored timestamp lies between.
+     */
+    private static long toBoundNanos(LocalDateTime bound) {
+        try {
+            return FuelHistory.toEpochNanos(bound);
+        } catch (ArithmeticException e) {
+            return bound.getYear() < 1970 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Fuel statistics over the entries with odometer readings in
+     * [fromOdometer, toOdometer]; either bound may be null. The range is
+     * found by binary search and totalled from the running totals, in
+     * O(log n) whatever its length.
+     */
+    public FuelStats calculateFuelStatsForOdometerRange(Long carId, Integer fromOdometer, Integer toOdometer) {
+        if (fromOdometer != null && toOdometer != null && fromOdometer > toOdometer) {
+            throw new IllegalArgumentException("'fromOdometer' must not be greater than 'toOdometer'");
+        }
+
+        FuelHistory.Snapshot history = getHistory(carId);
+        int start = fromOdometer != null ? history.odometerLowerBound(fromOdometer) : 0;
+        int end = toOdometer != null ? history.odometerLowerBound(toOdometer + 1L) : history.size();
+        return buildFuelStats(history.rangeTotals(start, end));
+    }
+
+    /**
+     * Fuel statistics over the entries at positions [fromIndex, toIndex) in
+     * odometer order; either bound may be null, and bounds past the end are
+     * cut to the history size. O(1) from the running totals.
+     */
+    public FuelStats calculateFuelStatsForEntryRange(Long carId, Integer fromIndex, Integer toIndex) {
+        if ((fromIndex != null && fromIndex < 0) || (toIndex != null && toIndex < 0)) {
+            throw new IllegalArgumentException("Entry indexes must be non-negative");
+        }
+        if (fromIndex != null && toIndex != null && fromIndex > toIndex) {
+            throw new IllegalArgumentException("'fromIndex' must not be greater than 'toIndex'");
+        }
+
+        FuelHistory.Snapshot history = getHistory(carId);
+        int end = toIndex != null ? Math.min(toIndex, history.size()) : history.size();
+        int start = fromIndex != null ? Math.min(fromIndex, end) : 0;
+        return buildFuelStats(history.rangeTotals(start, end));
+    }
+
+    /**
+     * Version of the car's fuel entries, which goes up on every change to
+     * them. Stats and entries read for one version are always the same.
+     */
+    public long getCarVersion(long carId) {
+        return getHistory(carId).version();
+    }
+
+    private FuelHistory.Snapshot getHistory(long carId) {
+        Car car = carRepository.findById(carId)
+                .orElseThrow(() -> new CarService.CarNotFoundException("Car not found with id: " + carId));
+        return car.getFuelHistory().snapshot();
+    }
+
+    /**
+     * Fuel statistics recomputed by scanning the car's full fuel history.
+     * Returns the same values as calculateFuelStats, at O(n) cost.
+     */
+    public FuelStats recalculateFuelStats(long carId) {
         Car car = carRepository.findById(carId)
                 .orElseThrow(() -> new CarService.CarNotFoundException("Car not found with id: " + carId));
 
-        List<FuelEntry> fuelEntries = car.getFuelEntries();
+        return recalculateFuelStats(car.getFuelHistory().snapshot());
+    }
+
+    /**
+     * Fuel statistics recomputed by scanning one snapshot of a fuel history
+     */
+    public FuelStats recalculateFuelStats(FuelHistory.Snapshot history) {
+
+        // Calculate basic totals straight from the columns
+        double totalFuel = IntStream.range(0, history.size())
+                .mapToDouble(history::getLiters)
+                .sum();
+
+        double totalCost = IntStream.range(0, history.size())
+                .mapToDouble(history::getTotalCost)
+                .sum();
+
+        // Calculate average consumption (L/100km)
+        double averageConsumption = calculateAverageConsumption(history);
+
+        return buildFuelStats(totalFuel, totalCost, averageConsumption, history.size());
+    }
+
+    private FuelStats buildFuelStats(FuelHistory.RangeTotals totals) {
+        return buildFuelStats(totals.totalLiters(), totals.totalCost(),
+                totals.averageConsumption(), totals.entryCount());
+    }
 
-        if (fuelEntries.isEmpty()) {
+    private FuelStats buildFuelStats(double totalFuel, double totalCost,
+            double averageConsumption, int totalEntries) {
+        if (totalEntries == 0) {
             return FuelStats.builder()
                     .totalFuelLiters(0.0)
                     .totalCost(0.0)
@@ -48,20 +310,8 @@ public class FuelService {
                     .build();
         }
 
-        // Calculate basic totals
-        double totalFuel = fuelEntries.stream()
-                .mapToDouble(FuelEntry::getLiters)
-                .sum();
-
-        double totalCost = fuelEntries.stream()
-                .mapToDouble(FuelEntry::getTotalCost)
-                .sum();
-
         double averagePricePerLiter = totalFuel > 0 ? totalCost / totalFuel : 0;
 
-        // Calculate average consumption (L/100km)
-        double averageConsumption = calculateAverageConsumption(fuelEntries);
-
         // Calculate cost per 100km
         double costPer100km = averageConsumption * averagePricePerLiter;
 
@@ -69,7 +319,7 @@ public class FuelService {
                 .totalFuelLiters(round(totalFuel, 1))
                 .totalCost(round(totalCost, 2))
                 .averageConsumption(round(averageConsumption, 1))
-                .totalEntries(fuelEntries.size())
+                .totalEntries(totalEntries)
                 .averagePricePerLiter(round(averagePricePerLiter, 2))
                 .costPer100km(round(costPer100km, 2))
                 .build();
@@ -81,26 +331,21 @@ public class FuelService {
      * Each segment: (fuel_used / distance) * 100
      * Requires at least 2 fuel entries with valid odometer readings
      */
-    private double calculateAverageConsumption(List<FuelEntry> fuelEntries) {
-        if (fuelEntries.size() < 2) {
+    private double calculateAverageConsumption(FuelHistory.Snapshot history) {
+        if (history.size() < 2) {
             return 0.0; // Not enough data to calculate
         }
 
-        // Sort fuel entries by odometer (ascending)
-        List<FuelEntry> sortedEntries = fuelEntries.stream()
-                .sorted(Comparator.comparing(FuelEntry::getOdometer))
-                .toList();
-
         double totalConsumption = 0.0;
         int validSegments = 0;
 
-        // Calculate consumption for each segment and average them
-        for (int i = 1; i < sortedEntries.size(); i++) {
-            FuelEntry previous = sortedEntries.get(i - 1);
-            FuelEntry current = sortedEntries.get(i);
-
-            double distance = current.getOdometer() - previous.getOdometer();
-            double fuelUsed = current.getLiters();
+        // Entries are stored in odometer order, so consecutive entries form the segments
+        int previousOdometer = history.getOdometer(0);
+        for (int i = 1; i < history.size(); i++) {
+            int odometer = history.getOdometer(i);
+            double distance = odometer - previousOdometer;
+            double fuelUsed = history.getLiters(i);
+            previousOdometer = odometer;
 
             // Only include valid segments (positive distance)
             if (distance > 0) {
@@ -131,24 +376,6 @@ public class FuelService {
         }
     }
 
-    private void validateOdometerReading(Car car, Integer newOdometer) {
-        List<FuelEntry> fuelEntries = car.getFuelEntries();
-        if (!fuelEntries.isEmpty()) {
-            // Get the highest odometer reading so far
-            Integer highestOdometer = fuelEntries.stream()
-                    .map(FuelEntry::getOdometer)
-                    .max(Integer::compareTo)
-                    .orElse(0);
-
-            if (newOdometer < highestOdometer) {
-                throw new IllegalArgumentException(
-                        String.format("New odometer reading (%d) is less than previous highest (%d). " +
-                                "Odometer must always increase.",
-                                newOdometer, highestOdometer));
-            }
-        }
-    }
-
     private double round(double value, int decimalPlaces) {
         double scale = Math.pow(10, decimalPlaces);
         return Math.round(value * scale) / scale;
@@ -157,4 +384,56 @@ public class FuelService {
     public List<FuelEntry> getFuelEntriesForCar(Long carId) {
         return carRepository.getFuelEntriesForCar(carId);
     }
+
+    /**
+     * Up to limit fuel entries in odometer order, starting at an offset or
+     * after the entry with the given id (ids increase along the history).
+     * Only the page is materialized, all from one snapshot of the history.
+     */
+    public FuelEntryPage getFuelEntryPage(Long carId, Integer offset, Long after, int limit) {
+        if (offset != null && after != null) {
+            throw new IllegalArgumentException("Give either an offset or a cursor, not both");
+        }
+        if (offset != null && offset < 0) {
+            throw new IllegalArgumentException("Offset must be non-negative");
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        FuelHistory.Snapshot history = getHistory(carId);
+        int start;
+        if (after == null) {
+            start = offset != null ? offset : 0;
+        } else if (after == Long.MAX_VALUE) {
+            start = history.size(); // No id comes after it, and after + 1 would wrap around
+        } else {
+            start = history.idLowerBound(after + 1);
+        }
+        int end = (int) Math.min((long) start + limit, history.size());
+
+        List<FuelEntry> entries = new ArrayList<>(Math.max(end - start, 0));
+        for (int i = start; i < end; i++) {
+            FuelEntry fuelEntry = history.getEntry(i);
+            fuelEntry.setCarId(carId);
+            entries.add(fuelEntry);
+        }
+        Long nextCursor = end < history.size() ? history.getId(end - 1) : null;
+        return new FuelEntryPage(entries, nextCursor, history.size());
+    }
+
+    /**
+     * A page of fuel entries, the cursor of the next page (null on the last
+     * one) and the number of entries the car has
+     */
+    public record FuelEntryPage(List<FuelEntry> entries, Long nextCursor, int totalEntries) {
+    }
+
+    /**
+     * The car's fuel history as of now. The snapshot is immutable, so
+     * callers can walk it entry by entry without copying it.
+     */
+    public FuelHistory.Snapshot getFuelHistory(long carId) {
+        return getHistory(carId);
+    }
 }
\ No newline at end of file
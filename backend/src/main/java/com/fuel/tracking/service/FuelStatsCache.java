@@ -0,0 +1,17 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.FuelStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-car fuel stats keyed by (car id, version), so stats are only built
+ * again after the car's entries change
+ */
+@Component
+public class FuelStatsCache extends VersionedCache<Long, FuelStats> {
+
+    public FuelStatsCache(@Value("${fuel.stats-cache.max-size:10000}") int maxSize) {
+        super(maxSize);
+    }
+}
@@ -0,0 +1,141 @@
+package com.fuel.tracking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Final JSON bytes of hot GET responses, keyed by (resource, version).
+ *
+ * A response is serialized once per version of the data behind it and then
+ * written straight to the client from the cached bytes. Bodies large enough
+ * to benefit are also kept gzip-compressed, built the first time a client
+ * accepts gzip. A write changes the resource's version, so old bytes are
+ * never served and need no explicit invalidation. Serializing a large listing
+ * is the expensive part, so concurrent misses for the same resource and
+ * version share one serialization.
+ */
+@Component
+public class ResponseBodyCache extends VersionedCache<String, ResponseBodyCache.EncodedBody> {
+
+    // Below this, gzip saves too little to be worth the Content-Encoding
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    // Bigger bodies are served but not kept, so one huge listing cannot fill the heap
+    private static final int MAX_CACHED_BYTES = 8 * 1024 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final boolean gzipEnabled;
+
+    private final SingleFlight<BodyKey, EncodedBody> flights = new SingleFlight<>();
+
+    public ResponseBodyCache(ObjectMapper objectMapper,
+            @Value("${fuel.response-cache.max-size:10000}") int maxSize,
+            @Value("${fuel.response-cache.gzip:true}") boolean gzipEnabled) {
+        super(maxSize);
+        this.objectMapper = objectMapper;
+        this.gzipEnabled = gzipEnabled;
+    }
+
+    /**
+     * Encoded body of the resource at the given version, serializing the
+     * body supplied only if it is not cached yet
+     */
+    public EncodedBody encode(String resource, long version, Supplier<?> body) {
+        return encode(resource, version, () -> version, body);
+    }
+
+    /**
+     * encode for a body read fresh from data that may have moved on since
+     * the version was read. The body is cached only if currentVersion still
+     * gives the same version once it is built, so newer data is never kept
+     * under an older version.
+     */
+    public EncodedBody encode(String resource, long version, LongSupplier currentVersion, Supplier<?> body) {
+        return get(resource, version).orElseGet(() -> flights.run(new BodyKey(resource, version), () -> {
+            EncodedBody encoded = new EncodedBody(serialize(body.get()), gzipEnabled);
+            if (encoded.json().length <= MAX_CACHED_BYTES && currentVersion.getAsLong() == version) {
+                put(resource, version, encoded);
+            }
+            return encoded;
+        }));
+    }
+
+    private record BodyKey(String resource, long version) {
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows a gzip-encoded response
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    public static final class EncodedBody {
+        private final byte[] json;
+        private final boolean compressible;
+        private volatile byte[] gzipped;
+
+        EncodedBody(byte[] json, boolean gzipEnabled) {
+            this.json = json;
+            this.compressible = gzipEnabled && json.length >= GZIP_MIN_BYTES;
+        }
+
+        public byte[] json() {
+            return json;
+        }
+
+        /**
+         * The body gzip-compressed, or null when it is not worth compressing.
+         * Compressed on first use; racing callers may both compress, with the
+         * same result.
+         */
+        public byte[] gzipped() {
+            if (!compressible) {
+                return null;
+            }
+            byte[] result = gzipped;
+            if (result == null) {
+                result = gzip(json);
+                gzipped = result;
+            }
+            return result;
+        }
+
+        private static byte[] gzip(byte[] bytes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return out.toByteArray();
+        }
+    }
+}
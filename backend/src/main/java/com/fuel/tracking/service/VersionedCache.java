@@ -0,0 +1,129 @@
+package com.fuel.tracking.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of values keyed by (key, version).
+ *
+ * A key's version changes whenever the data behind it does, so a cached
+ * value is only ever returned for the exact version it was computed from;
+ * there is nothing to invalidate. Only the latest version of each key is
+ * kept.
+ *
+ * The cache is split into segments by key hash, each an LRU map under its
+ * own lock, so concurrent readers of different keys rarely wait on each
+ * other. When a segment is full its least recently used key is evicted.
+ */
+public class VersionedCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public VersionedCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.segments = new VersionedCache.Segment[SEGMENTS];
+        int perSegment = Math.max(1, (maxSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Value cached for the key at the given version
+     */
+    public Optional<V> get(K key, long version) {
+        Segment segment = segmentFor(key);
+        Cached<V> cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached == null || cached.version() != version) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(cached.value());
+    }
+
+    /**
+     * Cache a value computed for the key at the given version. An older
+     * version never replaces a newer one.
+     */
+    public void put(K key, long version, V value) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Cached<V> cached = segment.get(key);
+            if (cached == null || cached.version() < version) {
+                segment.put(key, new Cached<>(version, value));
+            }
+        }
+    }
+
+    public void evict(K key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            segment.remove(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public Metrics getMetrics() {
+        long hits = this.hits.sum();
+        long misses = this.misses.sum();
+        long lookups = hits + misses;
+        return new Metrics(size(), maxSize, hits, misses, evictions.sum(),
+                lookups == 0 ? 0.0 : (double) hits / lookups);
+    }
+
+    private Segment segmentFor(K key) {
+        // Spread sequential keys across the segments
+        long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 32) & (SEGMENTS - 1)];
+    }
+
+    private record Cached<V>(long version, V value) {
+    }
+
+    public record Metrics(int size, int maxSize, long hits, long misses, long evictions, double hitRate) {
+    }
+
+    private class Segment extends LinkedHashMap<K, Cached<V>> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true); // Access order, for LRU eviction
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Cached<V>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
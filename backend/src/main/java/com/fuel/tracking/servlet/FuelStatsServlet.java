@@ -6,6 +6,7 @@ import com.fuel.tracking.dto.FuelStatsResponse;
 import com.fuel.tracking.model.FuelStats;
 import com.fuel.tracking.service.CarService;
 import com.fuel.tracking.service.FuelService;
+import com.fuel.tracking.service.ResponseBodyCache;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
@@ -26,6 +27,7 @@ public class FuelStatsServlet extends HttpServlet {
     // Since Servlet is not managed by Spring, we'll use a different approach
     private FuelService fuelService;
     private ObjectMapper objectMapper;
+    private ResponseBodyCache responseBodyCache;
 
     /**
      * Servlet initialization - get Spring beans from context
@@ -40,7 +42,7 @@ public class FuelStatsServlet extends HttpServlet {
      * Initialize Spring beans from context (can be called lazily)
      */
     private void initializeBeans() {
-        if (fuelService != null && objectMapper != null) {
+        if (fuelService != null && objectMapper != null && responseBodyCache != null) {
             return; // Already initialized
         }
 
@@ -51,6 +53,7 @@ public class FuelStatsServlet extends HttpServlet {
         if (springContext != null) {
             fuelService = springContext.getBean(FuelService.class);
             objectMapper = springContext.getBean(ObjectMapper.class);
+            responseBodyCache = springContext.getBean(ResponseBodyCache.class);
         }
     }
 
@@ -64,7 +67,7 @@ public class FuelStatsServlet extends HttpServlet {
         // Ensure servlet is initialized
         initializeBeans();
         
-        if (fuelService == null || objectMapper == null) {
+        if (fuelService == null || objectMapper == null || responseBodyCache == null) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.setContentType("application/json");
             PrintWriter writer = response.getWriter();
@@ -83,13 +86,12 @@ public class FuelStatsServlet extends HttpServlet {
 
         PrintWriter writer = null;
         try {
-            writer = response.getWriter();
-
             // Validate carId parameter
             if (carIdParam == null || carIdParam.trim().isEmpty()) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST); // 400
                 ApiResponse<Object> errorResponse = ApiResponse.error(
                         "Missing required parameter: carId");
+                writer = response.getWriter();
                 writer.write(objectMapper.writeValueAsString(errorResponse));
                 return;
             }
@@ -102,53 +104,79 @@ public class FuelStatsServlet extends HttpServlet {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST); // 400
                 ApiResponse<Object> errorResponse = ApiResponse.error(
                         "Invalid carId format. Must be a number.");
+                writer = response.getWriter();
                 writer.write(objectMapper.writeValueAsString(errorResponse));
                 return;
             }
 
-            // Use the same Service layer instance as REST API (as required)
-            FuelStats stats = fuelService.calculateFuelStats(carId);
+            // Conditional GET: the car's data version is the ETag, so an unchanged
+            // car is answered with 304 before any stats are computed or serialized.
+            // Weak, as the identity and gzip bodies share it.
+            long version = fuelService.getCarVersion(carId);
+            String etag = "W/\"car-" + carId + "-" + version + "\"";
+            response.setHeader("ETag", etag);
+            if (matchesETag(request.getHeader("If-None-Match"), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED); // 304
+                return;
+            }
 
-            // Convert to response DTO
-            FuelStatsResponse statsResponse = new FuelStatsResponse(
-                    stats.getTotalFuelLiters(),
-                    stats.getTotalCost(),
-                    stats.getAverageConsumption(),
-                    stats.getTotalEntries(),
-                    stats.getAveragePricePerLiter(),
-                    stats.getCostPer100km());
+            // Serialized once per car version, then written straight from the cached bytes
+            // Not cached if the car changed while the stats were computed
+            ResponseBodyCache.EncodedBody body = responseBodyCache.encode("servlet-fuel-stats:" + carId, version,
+                    () -> fuelService.getCarVersion(carId), () -> {
+                        // Use the same Service layer instance as REST API (as required)
+                        FuelStats stats = fuelService.calculateFuelStats(carId);
+
+                        // Convert to response DTO
+                        FuelStatsResponse statsResponse = new FuelStatsResponse(
+                                stats.getTotalFuelLiters(),
+                                stats.getTotalCost(),
+                                stats.getAverageConsumption(),
+                                stats.getTotalEntries(),
+                                stats.getAveragePricePerLiter(),
+                                stats.getCostPer100km());
+
+                        // Create success response
+                        return ApiResponse.success(statsResponse);
+                    });
 
             // Set status code explicitly (as required)
             response.setStatus(HttpServletResponse.SC_OK); // 200
+            response.addHeader("Vary", "Accept-Encoding");
 
-            // Create success response
-            ApiResponse<FuelStatsResponse> apiResponse = ApiResponse.success(statsResponse);
-
-            // Write JSON response manually
-            writer.write(objectMapper.writeValueAsString(apiResponse));
+            byte[] bytes = body.json();
+            if (ResponseBodyCache.acceptsGzip(request.getHeader("Accept-Encoding")) && body.gzipped() != null) {
+                bytes = body.gzipped();
+                response.setHeader("Content-Encoding", "gzip");
+            }
+            response.setContentLength(bytes.length);
+            response.getOutputStream().write(bytes);
 
         } catch (CarService.CarNotFoundException e) {
             // Handle car not found - set status code explicitly
-            if (writer != null && objectMapper != null) {
+            if (objectMapper != null) {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND); // 404
                 ApiResponse<Object> errorResponse = ApiResponse.error(
                         "Car not found with id: " + carIdParam);
+                writer = response.getWriter();
                 writer.write(objectMapper.writeValueAsString(errorResponse));
             }
 
         } catch (IllegalArgumentException e) {
             // Handle invalid input
-            if (writer != null && objectMapper != null) {
+            if (objectMapper != null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST); // 400
                 ApiResponse<Object> errorResponse = ApiResponse.error(
                         "Invalid input: " + e.getMessage());
+                writer = response.getWriter();
                 writer.write(objectMapper.writeValueAsString(errorResponse));
             }
 
         } catch (Exception e) {
             // Handle any other exceptions
-            if (writer != null) {
+            if (!response.isCommitted()) {
                 response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR); // 500
+                writer = response.getWriter();
                 if (objectMapper != null) {
                     ApiResponse<Object> errorResponse = ApiResponse.error(
                             "Internal server error");
@@ -168,6 +196,26 @@ public class FuelStatsServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Whether an If-None-Match header lists the given ETag (or is *)
+     */
+    private boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2); // If-None-Match compares weakly
+            }
+            if (candidate.equals("*") || candidate.equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
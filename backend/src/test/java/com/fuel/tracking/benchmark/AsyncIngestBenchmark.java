@@ -0,0 +1,98 @@
+package com.fuel.tracking.benchmark;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.repository.DurableCarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
+import com.fuel.tracking.service.FuelIngestPipeline;
+import com.fuel.tracking.service.FuelService;
+import com.fuel.tracking.service.FuelStatsCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 32 request threads each adding fuel entries to their own car on durable
+ * storage: every call writing and waiting for its fsync itself, against
+ * publishing to the ingest pipeline whose shard writers apply and fsync
+ * queued entries in batches.
+ *
+ * Run from backend/ after mvn test-compile:
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main AsyncIngestBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class AsyncIngestBenchmark {
+
+    @Param({ "false", "true" })
+    private boolean async;
+
+    private DurableCarRepository carRepository;
+    private FuelIngestPipeline pipeline;
+    private FuelService fuelService;
+    private final AtomicInteger cars = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        carRepository = new DurableCarRepository(Files.createTempDirectory("async-ingest").toString(),
+                64L * 1024 * 1024, 0);
+        pipeline = async ? new FuelIngestPipeline(carRepository, 4, 4096, 256) : null;
+        fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository),
+                new FuelStatsCache(1000), pipeline);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (pipeline != null) {
+            pipeline.destroy();
+        }
+        carRepository.destroy();
+    }
+
+    @State(Scope.Thread)
+    public static class OwnCar {
+        Long carId;
+        int odometer;
+
+        @Setup(Level.Trial)
+        public void setUp(AsyncIngestBenchmark benchmark) {
+            carId = benchmark.carRepository.save(
+                    new Car("Toyota", "Corolla", 2000 + benchmark.cars.incrementAndGet() % 100)).getId();
+        }
+    }
+
+    @Benchmark
+    public FuelEntry addFuelEntry(OwnCar car) {
+        return fuelService.addFuelEntry(car.carId, new FuelEntry(40.0, 1.5, car.odometer += 10));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AsyncIngestBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,138 @@
+package com.fuel.tracking.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuel.tracking.controller.BulkFuelController;
+import com.fuel.tracking.controller.FuelController;
+import com.fuel.tracking.handler.GlobalExceptionHandler;
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.DurableCarRepository;
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
+import com.fuel.tracking.service.FuelService;
+import com.fuel.tracking.service.FuelStatsCache;
+import com.fuel.tracking.service.ResponseBodyCache;
+import jakarta.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Adding 1000 fill-ups spread over 100 cars: one POST per entry against one
+ * NDJSON POST to /api/fuel/bulk, through the MVC stack (parsing, validation,
+ * response) without the network. With durable storage every single POST
+ * also waits for its own fsync, while the bulk upload waits once per car.
+ *
+ * Run from backend/ after mvn test-compile:
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main BulkIngestBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkIngestBenchmark {
+
+    private static final int CARS = 100;
+    private static final int ENTRIES = 1000;
+
+    @Param({ "memory", "durable" })
+    private String storage;
+
+    private CarRepository carRepository;
+    private Path directory;
+    private MockMvc mockMvc;
+    private long[] carIds;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        if (storage.equals("durable")) {
+            directory = Files.createTempDirectory("bulk-ingest");
+            carRepository = new DurableCarRepository(directory.toString(), 64L * 1024 * 1024, 0);
+        } else {
+            carRepository = new InMemoryCarRepository();
+        }
+        carIds = new long[CARS];
+        for (int i = 0; i < CARS; i++) {
+            carIds[i] = carRepository.save(new Car("Toyota", "Corolla", 2019)).getId();
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        FuelService fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository),
+                new FuelStatsCache(1000));
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                        new FuelController(fuelService, new ResponseBodyCache(objectMapper, 1000, true), objectMapper),
+                        new BulkFuelController(fuelService, objectMapper,
+                                Validation.buildDefaultValidatorFactory().getValidator()))
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (carRepository instanceof DurableCarRepository durable) {
+            durable.destroy();
+        }
+    }
+
+    @Benchmark
+    public void singlePosts() throws Exception {
+        int odometer = nextRound();
+        for (int i = 0; i < ENTRIES; i++) {
+            mockMvc.perform(post("/api/cars/{carId}/fuel", carIds[i % CARS])
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"liters\":40.0,\"price\":1.5,\"odometer\":" + (odometer + i) + "}"));
+        }
+    }
+
+    @Benchmark
+    public void bulkPost() throws Exception {
+        int odometer = nextRound();
+        StringBuilder body = new StringBuilder(ENTRIES * 64);
+        for (int i = 0; i < ENTRIES; i++) {
+            body.append("{\"carId\":").append(carIds[i % CARS])
+                    .append(",\"liters\":40.0,\"price\":1.5,\"odometer\":").append(odometer + i).append("}\n");
+        }
+        mockMvc.perform(post("/api/fuel/bulk")
+                .contentType("application/x-ndjson")
+                .content(body.toString()));
+    }
+
+    /**
+     * Odometer readings for the next invocation, above every earlier one
+     */
+    private int nextRound() {
+        return ++round * ENTRIES;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BulkIngestBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
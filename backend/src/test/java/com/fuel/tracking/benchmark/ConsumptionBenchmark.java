@@ -0,0 +1,129 @@
+package com.fuel.tracking.benchmark;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
+import com.fuel.tracking.model.FuelStats;
+import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
+import com.fuel.tracking.service.FuelService;
+import com.fuel.tracking.service.FuelStatsCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Average consumption over one car's history: the previous per-request sort
+ * by odometer against the direct scan of the odometer-ordered columns. Both
+ * compute only the consumption, from the same snapshot, so the difference is
+ * the sort alone.
+ *
+ * Run from backend/ after mvn test-compile:
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ConsumptionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConsumptionBenchmark {
+
+    @Param({ "1000", "100000", "1000000" })
+    private int entries;
+
+    private FuelService fuelService;
+    private FuelHistory.Snapshot history;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CarRepository carRepository = new InMemoryCarRepository();
+        fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository),
+                new FuelStatsCache(1000));
+        Car car = carRepository.save(new Car("Toyota", "Corolla", 2019));
+        Long carId = car.getId();
+
+        int odometer = 0;
+        for (int i = 0; i < entries; i++) {
+            odometer += 300 + (i * 37) % 400;
+            carRepository.addFuelEntryToCar(carId, new FuelEntry(30.0 + (i % 13) * 0.7, 1.5, odometer));
+        }
+        history = car.getFuelHistory().snapshot();
+    }
+
+    /**
+     * The consumption step as it is now (FuelService.calculateAverageConsumption):
+     * one pass in stored order
+     */
+    @Benchmark
+    public double orderedScan() {
+        double totalConsumption = 0.0;
+        int validSegments = 0;
+        int previousOdometer = history.getOdometer(0);
+        for (int i = 1; i < history.size(); i++) {
+            int odometer = history.getOdometer(i);
+            double distance = odometer - previousOdometer;
+            previousOdometer = odometer;
+            if (distance > 0) {
+                totalConsumption += history.getLiters(i) / distance * 100;
+                validSegments++;
+            }
+        }
+        return validSegments == 0 ? 0.0 : totalConsumption / validSegments;
+    }
+
+    /**
+     * Full recalculation through the service, totals included, for scale
+     */
+    @Benchmark
+    public FuelStats recalculateFuelStats() {
+        return fuelService.recalculateFuelStats(history);
+    }
+
+    /**
+     * The consumption step as it was before, sorting entry positions first
+     */
+    @Benchmark
+    public double sortedScan() {
+        int[] sortedIndexes = IntStream.range(0, history.size())
+                .boxed()
+                .sorted(Comparator.comparingInt(history::getOdometer))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        double totalConsumption = 0.0;
+        int validSegments = 0;
+        for (int i = 1; i < sortedIndexes.length; i++) {
+            double distance = history.getOdometer(sortedIndexes[i]) - history.getOdometer(sortedIndexes[i - 1]);
+            if (distance > 0) {
+                totalConsumption += history.getLiters(sortedIndexes[i]) / distance * 100;
+                validSegments++;
+            }
+        }
+        return validSegments == 0 ? 0.0 : totalConsumption / validSegments;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConsumptionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
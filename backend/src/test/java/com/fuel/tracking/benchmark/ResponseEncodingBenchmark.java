@@ -0,0 +1,102 @@
+package com.fuel.tracking.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fuel.tracking.dto.ApiResponse;
+import com.fuel.tracking.dto.CarResponse;
+import com.fuel.tracking.dto.FuelStatsResponse;
+import com.fuel.tracking.service.ResponseBodyCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producing the body of GET /api/cars/{id}/fuel/stats and GET /api/cars:
+ * serializing with the application's indenting ObjectMapper on every
+ * request, against serving the bytes cached for the current version.
+ *
+ * Run from backend/ after mvn test-compile:
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ResponseEncodingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseEncodingBenchmark {
+
+    @Param({ "100", "1000" })
+    private int cars;
+
+    private ObjectMapper objectMapper;
+    private ResponseBodyCache responseBodyCache;
+    private ApiResponse<FuelStatsResponse> stats;
+    private ApiResponse<List<CarResponse>> carList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // As configured in application.yml: indented output, JSR-310 dates
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        responseBodyCache = new ResponseBodyCache(objectMapper, 1000, true);
+
+        stats = ApiResponse.success(new FuelStatsResponse(1234.5, 1851.75, 6.4, 31, 1.5, 9.6));
+        List<CarResponse> list = new ArrayList<>();
+        for (int i = 0; i < cars; i++) {
+            list.add(new CarResponse((long) i, "Toyota", "Corolla", 2019, LocalDateTime.now(), i % 50));
+        }
+        carList = ApiResponse.success(list);
+    }
+
+    @Benchmark
+    public byte[] statsSerialized() throws Exception {
+        return objectMapper.writeValueAsBytes(stats);
+    }
+
+    @Benchmark
+    public byte[] statsCached() {
+        return responseBodyCache.encode("fuel-stats:1", 1, () -> stats).json();
+    }
+
+    @Benchmark
+    public byte[] carsSerialized() throws Exception {
+        return objectMapper.writeValueAsBytes(carList);
+    }
+
+    @Benchmark
+    public byte[] carsCached() {
+        return responseBodyCache.encode("cars", 1, () -> carList).json();
+    }
+
+    @Benchmark
+    public byte[] carsCachedGzip() {
+        return responseBodyCache.encode("cars", 1, () -> carList).gzipped();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseEncodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
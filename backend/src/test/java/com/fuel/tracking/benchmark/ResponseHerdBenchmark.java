@@ -0,0 +1,111 @@
+package com.fuel.tracking.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fuel.tracking.dto.ApiResponse;
+import com.fuel.tracking.dto.CarResponse;
+import com.fuel.tracking.service.ResponseBodyCache;
+import com.fuel.tracking.service.VersionedCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A herd of threads asking for the body of GET /api/cars while the fleet
+ * keeps changing: as soon as a version's body has been built the version
+ * moves on, so every burst of requests misses together. Through
+ * ResponseBodyCache.encode the herd shares one serialization per version;
+ * the uncoalesced case is the same get-or-build on a VersionedCache with
+ * every missing thread serializing for itself.
+ *
+ * Run from backend/ after mvn test-compile:
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main ResponseHerdBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class ResponseHerdBenchmark {
+
+    @Param({ "1000" })
+    private int cars;
+
+    private final AtomicLong version = new AtomicLong();
+
+    private ObjectMapper objectMapper;
+    private ResponseBodyCache responseBodyCache;
+    private VersionedCache<String, byte[]> plainCache;
+    private ApiResponse<List<CarResponse>> carList;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // As configured in application.yml: indented output, JSR-310 dates
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .enable(SerializationFeature.INDENT_OUTPUT);
+        responseBodyCache = new ResponseBodyCache(objectMapper, 1000, true);
+        plainCache = new VersionedCache<>(1000);
+
+        List<CarResponse> list = new ArrayList<>();
+        for (int i = 0; i < cars; i++) {
+            list.add(new CarResponse((long) i, "Toyota", "Corolla", 2019, LocalDateTime.now(), i % 50));
+        }
+        carList = ApiResponse.success(list);
+    }
+
+    @Benchmark
+    public byte[] uncoalesced() throws Exception {
+        long current = version.get();
+        byte[] body = plainCache.get("cars", current).orElse(null);
+        if (body == null) {
+            body = objectMapper.writeValueAsBytes(carList);
+            plainCache.put("cars", current, body);
+            version.compareAndSet(current, current + 1);
+        }
+        return body;
+    }
+
+    @Benchmark
+    public byte[] coalesced() {
+        long current = version.get();
+        boolean[] built = new boolean[1];
+        byte[] body = responseBodyCache.encode("cars", current, () -> {
+            built[0] = true;
+            return carList;
+        }).json();
+        if (built[0]) {
+            version.compareAndSet(current, current + 1);
+        }
+        return body;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseHerdBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
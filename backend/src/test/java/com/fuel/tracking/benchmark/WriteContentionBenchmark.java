@@ -0,0 +1,93 @@
+package com.fuel.tracking.benchmark;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 8 threads adding fuel entries to the in-memory repository, spread over a
+ * number of cars: 8 gives every thread its own car, 2 makes four writers
+ * share each car. Histories are rebuilt for each iteration and iterations
+ * are kept short; the fork still gets a larger heap, as writers keep adding
+ * entries while JMH winds an iteration down.
+ *
+ * Run from backend/ after mvn test-compile:
+ * mvn dependency:build-classpath -Dmdep.outputFile=cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat cp.txt) org.openjdk.jmh.Main WriteContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class WriteContentionBenchmark {
+
+    @Param({ "8", "2" })
+    private int cars;
+
+    private InMemoryCarRepository repository;
+    private long[] carIds;
+    private AtomicInteger[] odometers;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        // Fresh histories each iteration, so they do not grow without bound
+        repository = new InMemoryCarRepository();
+        carIds = new long[cars];
+        odometers = new AtomicInteger[cars];
+        for (int i = 0; i < cars; i++) {
+            carIds[i] = repository.save(new Car("Toyota", "Corolla", 2019)).getId();
+            odometers[i] = new AtomicInteger();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        int car;
+
+        @Setup(Level.Trial)
+        public void setUp(WriteContentionBenchmark benchmark) {
+            car = benchmark.threads.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    public FuelEntry addFuelEntry(Writer writer) {
+        int car = writer.car % cars;
+        // Readings may reach the car out of order; rejected ones still count as writes
+        FuelEntry fuelEntry = new FuelEntry(40.0, 1.5, odometers[car].addAndGet(10));
+        try {
+            return repository.addFuelEntryToCar(carIds[car], fuelEntry);
+        } catch (IllegalArgumentException e) {
+            return fuelEntry;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WriteContentionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,57 @@
+package com.fuel.tracking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuel.tracking.dto.AddFuelRequest;
+import com.fuel.tracking.dto.CreateCarRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "fuel.ingest.async.enabled=true")
+@AutoConfigureMockMvc
+class AsyncIngestIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void addFuelEntry_AsyncMode_RespondsOnceApplied() throws Exception {
+        CreateCarRequest carRequest = new CreateCarRequest();
+        carRequest.setBrand("Peugeot");
+        carRequest.setModel("308");
+        carRequest.setYear(2021);
+        String car = mockMvc.perform(post("/api/cars")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(carRequest)))
+                .andReturn().getResponse().getContentAsString();
+        long carId = objectMapper.readTree(car).path("data").path("id").asLong();
+
+        AddFuelRequest request = new AddFuelRequest();
+        request.setLiters(40.0);
+        request.setPrice(1.5);
+        request.setOdometer(10000);
+        mockMvc.perform(post("/api/cars/{carId}/fuel", carId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data.id").exists());
+
+        request.setOdometer(9000);
+        mockMvc.perform(post("/api/cars/{carId}/fuel", carId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel/stats", carId))
+                .andExpect(jsonPath("$.data.totalEntries").value(1));
+    }
+}
@@ -0,0 +1,73 @@
+package com.fuel.tracking.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuel.tracking.dto.CreateCarRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class BulkFuelControllerIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Long carId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        CreateCarRequest carRequest = new CreateCarRequest();
+        carRequest.setBrand("Volvo");
+        carRequest.setModel("V60");
+        carRequest.setYear(2022);
+
+        String response = mockMvc.perform(post("/api/cars")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(carRequest)))
+                .andReturn().getResponse().getContentAsString();
+        carId = objectMapper.readTree(response).path("data").path("id").asLong();
+    }
+
+    @Test
+    void addFuelEntries_AddsValidLinesAndReportsTheRest() throws Exception {
+        String body = String.join("\n",
+                "{\"carId\":" + carId + ",\"liters\":40.0,\"price\":1.5,\"odometer\":10000}",
+                "",
+                "{\"carId\":" + carId + ",\"liters\":38.0,\"price\":1.6,\"odometer\":10600}",
+                "{not json",
+                "{\"carId\":" + carId + ",\"liters\":35.0,\"price\":1.6}",
+                "{\"carId\":" + carId + ",\"liters\":35.0,\"price\":1.6,\"odometer\":9000}",
+                "{\"liters\":35.0,\"price\":1.6,\"odometer\":11000}",
+                "{\"carId\":" + carId + ",\"liters\":36.0,\"price\":1.7,\"odometer\":11200}") + "\n";
+
+        mockMvc.perform(post("/api/fuel/bulk")
+                .contentType("application/x-ndjson")
+                .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.accepted").value(3))
+                .andExpect(jsonPath("$.data.rejected").value(4))
+                .andExpect(jsonPath("$.data.errors[0].line").value(4))
+                .andExpect(jsonPath("$.data.errors[0].error").value("Malformed JSON"))
+                .andExpect(jsonPath("$.data.errors[1].line").value(5))
+                .andExpect(jsonPath("$.data.errors[1].error").value("Odometer is required"))
+                .andExpect(jsonPath("$.data.errors[2].line").value(6))
+                .andExpect(jsonPath("$.data.errors[3].line").value(7))
+                .andExpect(jsonPath("$.data.errors[3].error").value("Car id is required"));
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel/stats", carId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.totalEntries").value(3));
+    }
+}
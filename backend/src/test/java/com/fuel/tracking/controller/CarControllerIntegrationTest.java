@@ -1,5 +1,6 @@
 package com.fuel.tracking.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fuel.tracking.dto.CreateCarRequest;
 import org.junit.jupiter.api.Test;
@@ -8,8 +9,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -56,6 +62,20 @@ class CarControllerIntegrationTest {
                 .andExpect(jsonPath("$.error").value(containsString("Brand is required")));
     }
 
+    @Test
+    void createCar_OverlongModel_ReturnsBadRequest() throws Exception {
+        CreateCarRequest request = new CreateCarRequest();
+        request.setBrand("Toyota");
+        request.setModel("x".repeat(256));
+        request.setYear(2020);
+
+        mockMvc.perform(post("/api/cars")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("Model must be at most 255 characters")));
+    }
+
     @Test
     void getAllCars_ReturnsEmptyListInitially() throws Exception {
         mockMvc.perform(get("/api/cars"))
@@ -64,4 +84,149 @@ class CarControllerIntegrationTest {
                 .andExpect(jsonPath("$.data").isArray())
                 .andExpect(jsonPath("$.data").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAllCars_MatchingETag_ReturnsNotModifiedUntilACarIsAdded() throws Exception {
+        String etag = mockMvc.perform(get("/api/cars"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/cars").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        CreateCarRequest request = new CreateCarRequest();
+        request.setBrand("Mazda");
+        request.setModel("3");
+        request.setYear(2022);
+        mockMvc.perform(post("/api/cars")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/cars").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+    }
+
+    @Test
+    void getCarPage_FollowsCursorThroughEveryCar() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(createCar("Kia", "Ceed", 2015 + i));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String after = String.valueOf(created.get(0) - 1);
+        while (after != null) {
+            String json = mockMvc.perform(get("/api/cars").param("after", after).param("limit", "2"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.data.cars.length()").value(lessThanOrEqualTo(2)))
+                    .andReturn().getResponse().getContentAsString();
+            JsonNode data = objectMapper.readTree(json).get("data");
+            data.get("cars").forEach(car -> seen.add(car.get("id").asLong()));
+            after = data.has("nextCursor") ? data.get("nextCursor").asText() : null;
+        }
+
+        assertEquals(created, seen.subList(0, created.size()));
+    }
+
+    @Test
+    void getCarPage_CursorWithoutLimit_ReturnsDefaultSizedPage() throws Exception {
+        List<Long> created = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            created.add(createCar("Kia", "Rio", 2015 + i));
+        }
+
+        mockMvc.perform(get("/api/cars").param("after", String.valueOf(created.get(0))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.cars[0].id").value(created.get(1)))
+                .andExpect(jsonPath("$.data.cars[1].id").value(created.get(2)));
+
+        mockMvc.perform(get("/api/cars").param("after", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getCarPage_LimitOutOfRange_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/cars").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
+
+    @Test
+    void streamAllCars_WritesSameCarsAsFullList() throws Exception {
+        createCar("Skoda", "Octavia", 2018);
+
+        String full = mockMvc.perform(get("/api/cars"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        MvcResult streaming = mockMvc.perform(get("/api/cars").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(streaming))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data[-1].brand").value("Skoda"));
+
+        assertEquals(objectMapper.readTree(full), objectMapper.readTree(streaming.getResponse().getContentAsString()));
+    }
+
+    @Test
+    void createCars_JsonArray_ReturnsConsecutiveIdsInOrder() throws Exception {
+        String json = mockMvc.perform(post("/api/cars/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"brand\":\"Fiat\",\"model\":\"Panda\",\"year\":2017},"
+                        + "{\"brand\":\"Fiat\",\"model\":\"500\",\"year\":2019},"
+                        + "{\"brand\":\"Fiat\",\"model\":\"Tipo\",\"year\":2021}]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.length()").value(3))
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode ids = objectMapper.readTree(json).get("data");
+        assertEquals(ids.get(0).asLong() + 1, ids.get(1).asLong());
+        assertEquals(ids.get(0).asLong() + 2, ids.get(2).asLong());
+
+        mockMvc.perform(get("/api/cars").param("after", String.valueOf(ids.get(0).asLong() - 1)).param("limit", "3"))
+                .andExpect(jsonPath("$.data.cars[1].model").value("500"))
+                .andExpect(jsonPath("$.data.cars[2].year").value(2021));
+    }
+
+    @Test
+    void createCars_Ndjson_InvalidCarCreatesNothing() throws Exception {
+        int before = objectMapper.readTree(mockMvc.perform(get("/api/cars"))
+                .andReturn().getResponse().getContentAsString()).get("data").size();
+
+        mockMvc.perform(post("/api/cars/bulk")
+                .contentType("application/x-ndjson")
+                .content("{\"brand\":\"Seat\",\"model\":\"Leon\",\"year\":2020}\n"
+                        + "{\"brand\":\"Seat\",\"year\":2020}\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Car 2: Model is required"));
+
+        mockMvc.perform(get("/api/cars"))
+                .andExpect(jsonPath("$.data.length()").value(before));
+
+        mockMvc.perform(post("/api/cars/bulk")
+                .contentType("application/x-ndjson")
+                .content("{\"brand\":\"Seat\",\"model\":\"Leon\",\"year\":2020}\n\n"
+                        + "{\"brand\":\"Seat\",\"model\":\"Ibiza\",\"year\":2018}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.data.length()").value(2));
+    }
+
+    private long createCar(String brand, String model, int year) throws Exception {
+        CreateCarRequest request = new CreateCarRequest();
+        request.setBrand(brand);
+        request.setModel(model);
+        request.setYear(year);
+        String json = mockMvc.perform(post("/api/cars")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(json).get("data").get("id").asLong();
+    }
+}
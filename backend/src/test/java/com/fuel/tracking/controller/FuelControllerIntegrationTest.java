@@ -12,6 +12,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -108,6 +112,137 @@ class FuelControllerIntegrationTest {
                 .andExpect(jsonPath("$.data.totalEntries").value(2))
                 .andExpect(jsonPath("$.data.averageConsumption").exists());
     }
+
+    @Test
+    void getAndDeleteFuelEntry_ById() throws Exception {
+        AddFuelRequest request = new AddFuelRequest();
+        request.setLiters(40.0);
+        request.setPrice(1.5);
+        request.setOdometer(10000);
+
+        MvcResult created = mockMvc.perform(post("/api/cars/{carId}/fuel", carId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andReturn();
+        long entryId = objectMapper.readTree(created.getResponse().getContentAsString())
+                .path("data")
+                .path("id")
+                .asLong();
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel/{entryId}", carId, entryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.id").value(entryId))
+                .andExpect(jsonPath("$.data.odometer").value(10000));
+
+        mockMvc.perform(delete("/api/cars/{carId}/fuel/{entryId}", carId, entryId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel/{entryId}", carId, entryId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getFuelStats_MatchingETag_ReturnsNotModifiedUntilCarChanges() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/cars/{carId}/fuel/stats", carId))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", startsWith("W/")))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel/stats", carId)
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        AddFuelRequest request = new AddFuelRequest();
+        request.setLiters(40.0);
+        request.setPrice(1.5);
+        request.setOdometer(10000);
+        mockMvc.perform(post("/api/cars/{carId}/fuel", carId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel/stats", carId)
+                .header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(etag)))
+                .andExpect(jsonPath("$.data.totalEntries").value(1));
+    }
+
+    @Test
+    void getFuelEntries_PagesByOffsetAndCursor() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            addEntry(40.0 + i, 10000 + i * 500);
+        }
+
+        String first = mockMvc.perform(get("/api/cars/{carId}/fuel", carId).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.entries.length()").value(2))
+                .andExpect(jsonPath("$.data.entries[0].odometer").value(10000))
+                .andExpect(jsonPath("$.data.totalEntries").value(5))
+                .andReturn().getResponse().getContentAsString();
+        long cursor = objectMapper.readTree(first).path("data").path("nextCursor").asLong();
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel", carId)
+                .param("after", String.valueOf(cursor)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.entries[0].odometer").value(11000))
+                .andExpect(jsonPath("$.data.nextCursor").exists());
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel", carId)
+                .param("offset", "4").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.entries.length()").value(1))
+                .andExpect(jsonPath("$.data.entries[0].odometer").value(12000))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel", carId)
+                .param("after", String.valueOf(Long.MAX_VALUE)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.entries.length()").value(0))
+                .andExpect(jsonPath("$.data.nextCursor").doesNotExist());
+
+        mockMvc.perform(get("/api/cars/{carId}/fuel", carId)
+                .param("offset", "0").param("after", String.valueOf(cursor)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamFuelEntries_WritesOneEntryPerLine() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            addEntry(35.0 + i, 20000 + i * 600);
+        }
+
+        MvcResult streaming = mockMvc.perform(get("/api/cars/{carId}/fuel", carId)
+                .accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(streaming))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(20000 + i * 600, objectMapper.readTree(lines[i]).path("odometer").asInt());
+        }
+    }
+
+    private void addEntry(double liters, int odometer) throws Exception {
+        AddFuelRequest request = new AddFuelRequest();
+        request.setLiters(liters);
+        request.setPrice(1.5);
+        request.setOdometer(odometer);
+        mockMvc.perform(post("/api/cars/{carId}/fuel", carId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+    }
+
     // @Test
     // void debugTest() throws Exception {
     // // Test with minimal request
@@ -0,0 +1,144 @@
+package com.fuel.tracking.model;
+
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Readers and writers racing on one history. Every snapshot a reader sees
+ * must be a complete prefix of what was appended, in order, with totals that
+ * match its entries; every append a writer saw succeed must be in the
+ * history exactly once, at a position consistent with when it happened.
+ */
+class FuelHistoryStressTest {
+
+    private static final int READERS = 4;
+    // Spans the short first chunk and several full ones
+    private static final int ENTRIES = 5000;
+
+    @Test
+    void testSnapshots_AreCompletePrefixesWhileOneWriterAppends() throws Exception {
+        FuelHistory history = new FuelHistory();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(READERS);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(executor.submit(() -> {
+                    int checked = 0;
+                    int lastSize = 0;
+                    while (!done.get() || lastSize < ENTRIES) {
+                        FuelHistory.Snapshot snapshot = history.snapshot();
+                        int size = snapshot.size();
+                        assertTrue(size >= lastSize, "size went back from " + lastSize + " to " + size);
+                        lastSize = size;
+                        assertEquals(size, snapshot.aggregate().entryCount());
+                        if (size > 0) {
+                            int last = size - 1;
+                            // Both ends of the prefix, and the newest slot, must be fully written
+                            assertEquals(1, snapshot.getId(0));
+                            assertEquals(size, snapshot.getId(last));
+                            assertEquals(last * 100, snapshot.getOdometer(last));
+                            assertEquals(20.0 + last % 10, snapshot.getLiters(last));
+                            assertEquals(snapshot.aggregate().totalLiters(), snapshot.getLitersTotal(last), 1e-6);
+                            assertEquals(snapshot.aggregate().segmentCount(), snapshot.getSegmentTotal(last));
+                            int middle = last / 2;
+                            assertEquals(middle + 1, snapshot.getId(middle));
+                            assertEquals(middle, snapshot.indexOfId(middle + 1));
+                        }
+                        checked++;
+                    }
+                    return checked;
+                }));
+            }
+
+            for (int i = 0; i < ENTRIES; i++) {
+                history.append((long) i + 1, 20.0 + i % 10, 1.5, i * 100, start.plusMinutes(i));
+            }
+            done.set(true);
+            for (Future<Integer> reader : readers) {
+                assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // An old snapshot keeps its view after the history grew past it
+        FuelHistory.Snapshot full = history.snapshot();
+        assertEquals(ENTRIES, full.size());
+        for (int i = 0; i < ENTRIES; i++) {
+            assertEquals(i + 1, full.getId(i));
+            assertEquals(i * 100, full.getOdometer(i));
+        }
+    }
+
+    @Test
+    void testConcurrentWriters_EveryAcceptedEntryAppearsOnceInOrder() throws Exception {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        int writers = 8;
+        int perWriter = 500;
+        AtomicInteger odometer = new AtomicInteger();
+        Set<Long> accepted = ConcurrentHashMap.newKeySet();
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                futures.add(executor.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < perWriter; i++) {
+                        // Readings are drawn in order but may reach the car out of order
+                        FuelEntry fuelEntry = new FuelEntry(30.0, 1.5, odometer.addAndGet(10));
+                        int sizeBefore = car.getFuelEntryCount();
+                        try {
+                            FuelEntry added = repository.addFuelEntryToCar(car.getId(), fuelEntry);
+                            // The append took effect between the call and its return
+                            FuelHistory.Snapshot after = car.getFuelHistory().snapshot();
+                            int index = after.indexOfId(added.getId());
+                            assertTrue(index >= sizeBefore, "entry landed before the call started");
+                            assertEquals(added.getOdometer(), after.getOdometer(index));
+                            assertTrue(accepted.add(added.getId()));
+                        } catch (IllegalArgumentException e) {
+                            assertNull(fuelEntry.getCarId());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        FuelHistory.Snapshot history = car.getFuelHistory().snapshot();
+        assertEquals(accepted.size(), history.size());
+        assertEquals(history.size(), history.aggregate().entryCount());
+        for (int i = 0; i < history.size(); i++) {
+            assertTrue(accepted.contains(history.getId(i)));
+            if (i > 0) {
+                assertTrue(history.getId(i) > history.getId(i - 1));
+                assertTrue(history.getOdometer(i) >= history.getOdometer(i - 1));
+            }
+        }
+        assertEquals(30.0 * history.size(), history.aggregate().totalLiters(), 1e-6);
+    }
+}
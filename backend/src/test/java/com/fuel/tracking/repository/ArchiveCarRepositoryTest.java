@@ -0,0 +1,278 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetAggregate;
+import com.fuel.tracking.model.FleetAggregates;
+import com.fuel.tracking.model.FuelAggregate;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveCarRepositoryTest {
+
+    private static final long SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRestart_ServesArchivedCarsAndReplaysLogTail() throws Exception {
+        ArchiveCarRepository repository = open();
+        Car toyota = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car honda = repository.save(new Car("Honda", "Civic", 2020));
+        for (int i = 0; i < 100; i++) {
+            repository.addFuelEntryToCar(toyota.getId(), new FuelEntry(40.0 + i % 3, 1.5, 10000 + i * 550));
+        }
+        repository.addFuelEntryToCar(honda.getId(), new FuelEntry(30.0, 1.6, 5000));
+        FuelAggregate.State expected = toyota.getFuelAggregate().state();
+        repository.merge();
+
+        // Written after the merge, so only in the log
+        repository.addFuelEntryToCar(honda.getId(), new FuelEntry(32.0, 1.6, 5600));
+        crash(repository);
+
+        ArchiveCarRepository reopened = open();
+        Car archivedToyota = reopened.findById(toyota.getId()).orElseThrow();
+        assertEquals("Toyota", archivedToyota.getBrand());
+        assertEquals(toyota.getCreatedAt(), archivedToyota.getCreatedAt());
+        assertEquals(expected, archivedToyota.getFuelAggregate().state());
+        FuelHistory.Snapshot archivedHistory = archivedToyota.getFuelHistory().snapshot();
+        assertEquals(archivedToyota.getFuelAggregate().getTotalCost(),
+                archivedHistory.rangeTotals(0, 100).totalCost());
+        assertEquals(40.0 + 41.0 + 42.0, archivedHistory.rangeTotals(3, 6).totalLiters(), 1e-9);
+
+        List<FuelEntry> entries = reopened.getFuelEntriesForCar(toyota.getId());
+        assertEquals(100, entries.size());
+        assertEquals(10000 + 99 * 550, entries.get(99).getOdometer());
+        assertEquals(2, reopened.getFuelEntriesForCar(honda.getId()).size());
+
+        // New entries land on top of the mapped history
+        reopened.addFuelEntryToCar(toyota.getId(), new FuelEntry(41.0, 1.5, 100000));
+        assertEquals(101, reopened.findById(toyota.getId()).orElseThrow().getFuelEntryCount());
+        assertEquals(2, reopened.findAll().size());
+        assertEquals(2, reopened.getFleetAggregates().getTotal().getCarCount());
+        assertEquals(103, reopened.getFleetAggregates().getTotal().getEntryCount());
+        assertEquals(101, reopened.getFleetAggregates().getGroups()
+                .get(FleetAggregates.Group.of(toyota)).getEntryCount());
+        reopened.destroy();
+
+        ArchiveCarRepository merged = open();
+        assertEquals(101, merged.getFuelEntriesForCar(toyota.getId()).size());
+        assertTrue(merged.save(new Car("Ford", "Focus", 2018)).getId() > honda.getId());
+        merged.destroy();
+    }
+
+    @Test
+    void testRestart_RestoresFleetTotalsPerGroup() throws Exception {
+        ArchiveCarRepository repository = open();
+        Car toyota = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car otherToyota = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car honda = repository.save(new Car("Honda", "Civic", 2020));
+        for (int i = 0; i < 10; i++) {
+            repository.addFuelEntryToCar(toyota.getId(), new FuelEntry(40.1 + i, 1.537, 10000 + i * 550));
+            repository.addFuelEntryToCar(honda.getId(), new FuelEntry(30.3, 1.61 + i, 5000 + i * 420));
+        }
+        repository.addFuelEntryToCar(otherToyota.getId(), new FuelEntry(20.0, 1.5, 100));
+        FleetAggregate.Totals total = repository.getFleetAggregates().getTotal().totals();
+        FleetAggregate.Totals hondas = repository.getFleetAggregates().getGroups()
+                .get(FleetAggregates.Group.of(honda)).totals();
+        repository.destroy();
+
+        ArchiveCarRepository reopened = open();
+        FleetAggregates restored = reopened.getFleetAggregates();
+        assertEquals(total, restored.getTotal().totals());
+        assertEquals(2, restored.getGroups().size());
+        assertEquals(hondas, restored.getGroups().get(FleetAggregates.Group.of(honda)).totals());
+        assertEquals(2, restored.getGroups().get(FleetAggregates.Group.of(toyota)).getCarCount());
+
+        // Removing archived cars takes back exactly what the stored totals hold
+        reopened.delete(toyota.getId());
+        reopened.delete(otherToyota.getId());
+        FleetAggregate toyotas = restored.getGroups().get(FleetAggregates.Group.of(toyota));
+        assertEquals(new FleetAggregate.Totals(0, 0, 0, 0, 0, 0), toyotas.totals());
+        assertEquals(hondas, restored.getTotal().totals());
+        reopened.destroy();
+    }
+
+    @Test
+    void testMerge_KeepsDeletionsAndLaterWrites() throws Exception {
+        ArchiveCarRepository repository = open();
+        Car kept = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car removed = repository.save(new Car("Honda", "Civic", 2020));
+        repository.merge();
+
+        repository.delete(removed.getId());
+        repository.addFuelEntryToCar(kept.getId(), new FuelEntry(40.0, 1.5, 10000));
+        assertFalse(repository.existsById(removed.getId()));
+        repository.merge();
+        repository.addFuelEntryToCar(kept.getId(), new FuelEntry(40.0, 1.5, 10500));
+        crash(repository);
+
+        ArchiveCarRepository reopened = open();
+        assertFalse(reopened.existsById(removed.getId()));
+        assertEquals(1, reopened.findAll().size());
+        Car car = reopened.findById(kept.getId()).orElseThrow();
+        assertEquals(2, car.getFuelEntryCount());
+        assertEquals(10500, car.getFuelAggregate().getLastOdometer());
+
+        // Entry ids resolve through the archive's index and the log tail alike
+        FuelEntryRepository fuelEntries = new IndexedFuelEntryRepository(reopened);
+        List<FuelEntry> entries = reopened.getFuelEntriesForCar(kept.getId());
+        for (FuelEntry entry : entries) {
+            assertEquals(kept.getId(), fuelEntries.findById(entry.getId()).orElseThrow().getCarId());
+        }
+        fuelEntries.delete(entries.get(0).getId());
+        reopened.merge();
+        assertTrue(fuelEntries.findById(entries.get(0).getId()).isEmpty());
+        assertEquals(10500, fuelEntries.findById(entries.get(1).getId()).orElseThrow().getOdometer());
+        reopened.destroy();
+    }
+
+    @Test
+    void testFindPage_MergesArchivedAndNewCarsInIdOrder() throws Exception {
+        ArchiveCarRepository repository = open();
+        for (int i = 0; i < 6; i++) {
+            repository.save(new Car("Toyota", "Corolla", 2010 + i));
+        }
+        repository.merge();
+        repository.findById(2L).orElseThrow(); // cached
+        repository.delete(4L);
+        repository.save(new Car("Honda", "Civic", 2020));
+        repository.save(new Car("Honda", "Civic", 2021));
+
+        List<Long> ids = new ArrayList<>();
+        Long after = null;
+        List<Car> page;
+        do {
+            page = repository.findPage(after, 2);
+            page.forEach(car -> ids.add(car.getId()));
+            after = page.isEmpty() ? after : page.get(page.size() - 1).getId();
+        } while (page.size() == 2);
+
+        assertEquals(List.of(1L, 2L, 3L, 5L, 6L, 7L, 8L), ids);
+        assertEquals(ids, repository.findAll().stream().map(Car::getId).toList());
+        assertEquals(List.of(5L, 6L, 7L), repository.findPage(3L, 3).stream().map(Car::getId).toList());
+        repository.destroy();
+    }
+
+    @Test
+    void testFailedAppend_LeavesNoChangeInMemory() throws Exception {
+        ArchiveCarRepository repository = open();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        FuelEntry first = repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, 10000));
+        repository.merge();
+        repository.addFuelEntryToCar(car.getId(), new FuelEntry(35.0, 1.6, 10600));
+
+        // Too long for the record encoding, so the car is never logged
+        assertThrows(RuntimeException.class, () -> repository.save(new Car("x".repeat(70_000), "Civic", 2020)));
+        assertEquals(List.of(car.getId()), repository.findAll().stream().map(Car::getId).toList());
+
+        crash(repository);
+        assertThrows(IllegalStateException.class,
+                () -> repository.addFuelEntryToCar(car.getId(), new FuelEntry(30.0, 1.5, 11000)));
+        assertThrows(IllegalStateException.class, () -> repository.addFuelEntriesToCar(car.getId(),
+                List.of(new FuelEntry(30.0, 1.5, 11000), new FuelEntry(30.0, 1.5, 11500))));
+        FuelEntry update = new FuelEntry(50.0, 1.5, 10100);
+        update.setId(first.getId());
+        assertThrows(IllegalStateException.class, () -> repository.updateFuelEntry(car.getId(), update));
+        assertThrows(IllegalStateException.class, () -> repository.deleteFuelEntry(car.getId(), first.getId()));
+        assertThrows(IllegalStateException.class, () -> repository.delete(car.getId()));
+        Car renamed = new Car("Toyota", "Yaris", 2019);
+        renamed.setId(car.getId());
+        assertThrows(IllegalStateException.class, () -> repository.save(renamed));
+
+        assertEquals("Corolla", repository.findById(car.getId()).orElseThrow().getModel());
+        List<FuelEntry> entries = repository.getFuelEntriesForCar(car.getId());
+        assertEquals(List.of(10000, 10600), entries.stream().map(FuelEntry::getOdometer).toList());
+        assertEquals(40.0, entries.get(0).getLiters());
+        assertEquals(2, repository.getFleetAggregates().getTotal().getEntryCount());
+        assertEquals(1, repository.getFleetAggregates().getTotal().getCarCount());
+    }
+
+    @Test
+    void testMerge_KeepsCarsDeletedWhileArchiveIsWrittenDeleted() throws Exception {
+        ArchiveCarRepository repository = open();
+        Car kept = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car removed = repository.save(new Car("Honda", "Civic", 2020));
+
+        // Never archived before, but captured by the merge that is deleting it
+        beforeNextDurableWait(repository, () -> repository.delete(removed.getId()));
+        repository.merge();
+
+        assertFalse(repository.existsById(removed.getId()));
+        assertTrue(repository.findById(removed.getId()).isEmpty());
+        assertEquals(List.of(kept.getId()), repository.findAll().stream().map(Car::getId).toList());
+        assertEquals(List.of(kept.getId()), repository.findPage(null, 10).stream().map(Car::getId).toList());
+        assertEquals(1, repository.getFleetAggregates().getTotal().getCarCount());
+        crash(repository);
+
+        ArchiveCarRepository reopened = open();
+        assertFalse(reopened.existsById(removed.getId()));
+        assertEquals(1, reopened.getFleetAggregates().getTotal().getCarCount());
+        reopened.merge();
+        assertFalse(reopened.existsById(removed.getId()));
+        reopened.destroy();
+    }
+
+    private ArchiveCarRepository open() throws IOException {
+        return new ArchiveCarRepository(directory, SEGMENT_SIZE, 0);
+    }
+
+    /**
+     * Stop without the shutdown merge, as if the process had died
+     */
+    private void crash(ArchiveCarRepository repository) throws Exception {
+        var field = ArchiveCarRepository.class.getDeclaredField("writeAheadLog");
+        field.setAccessible(true);
+        ((WriteAheadLog) field.get(repository)).close();
+    }
+
+    /**
+     * Run the action the next time the repository waits for the log, which a
+     * merge does after capturing its cut and before writing the archive
+     */
+    private void beforeNextDurableWait(ArchiveCarRepository repository, Runnable action) throws Exception {
+        var field = ArchiveCarRepository.class.getDeclaredField("writeAheadLog");
+        field.setAccessible(true);
+        WriteAheadLog log = (WriteAheadLog) field.get(repository);
+        AtomicBoolean pending = new AtomicBoolean(true);
+        field.set(repository, new WriteAheadLog(directory, SEGMENT_SIZE) {
+            @Override
+            long append(byte type, byte[] payload) {
+                return log.append(type, payload);
+            }
+
+            @Override
+            void awaitDurable(long lsn) {
+                if (pending.getAndSet(false)) {
+                    action.run();
+                }
+                log.awaitDurable(lsn);
+            }
+
+            @Override
+            long getLastLsn() {
+                return log.getLastLsn();
+            }
+
+            @Override
+            void deleteSegmentsUpTo(long lsn) throws IOException {
+                log.deleteSegmentsUpTo(lsn);
+            }
+
+            @Override
+            public void close() throws IOException {
+                log.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.fuel.tracking.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CarIdSetTest {
+
+    @Test
+    void testIdsAfter_WalksPagesInOrderAndDropsEmptyOnes() {
+        CarIdSet ids = new CarIdSet();
+        for (long id = 1; id <= 10_000; id++) {
+            ids.add(id);
+        }
+        ids.add(Long.MAX_VALUE);
+        ids.add(5000);
+        // Empties the second page entirely and most of the third
+        for (long id = 4096; id < 9000; id++) {
+            ids.remove(id);
+        }
+        ids.remove(123_456);
+
+        assertEquals(List.of(4094L, 4095L, 9000L, 9001L), take(ids.idsAfter(4093), 4));
+        assertEquals(List.of(10_000L, Long.MAX_VALUE), take(ids.idsAfter(9999), 10));
+        assertEquals(List.of(1L, 2L), take(ids.idsAfter(Long.MIN_VALUE), 2));
+        assertEquals(List.of(1L), take(ids.idsAfter(0), 1));
+        assertEquals(List.of(Long.MAX_VALUE), take(ids.idsAfter(Long.MAX_VALUE - 1), 10));
+        assertFalse(ids.idsAfter(Long.MAX_VALUE).hasNext());
+
+        // A dropped page comes back when an id in it is added again
+        ids.add(5000);
+        assertEquals(List.of(4095L, 5000L, 9000L), take(ids.idsAfter(4094), 3));
+        assertThrows(IllegalArgumentException.class, () -> ids.add(0));
+    }
+
+    private static List<Long> take(PrimitiveIterator.OfLong iterator, int limit) {
+        List<Long> taken = new ArrayList<>();
+        while (iterator.hasNext() && taken.size() < limit) {
+            taken.add(iterator.nextLong());
+        }
+        return taken;
+    }
+}
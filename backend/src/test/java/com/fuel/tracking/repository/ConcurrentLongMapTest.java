@@ -0,0 +1,86 @@
+package com.fuel.tracking.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    void testPutGetRemove_ReuseTombstonesAndSurviveRehash() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        assertNull(map.put(1, "one"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertNull(map.get(2));
+        assertNull(map.get(0));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, "zero"));
+
+        for (long key = 2; key <= 10_000; key++) {
+            map.put(key, "v" + key);
+        }
+        // Removing and re-adding churns tombstones through several rehashes
+        for (long key = 2; key <= 10_000; key += 2) {
+            assertEquals("v" + key, map.remove(key));
+        }
+        assertNull(map.remove(2));
+        for (long key = 2; key <= 10_000; key += 4) {
+            map.put(key, "again" + key);
+        }
+
+        assertEquals(1 + 4999 + 2500, map.size());
+        for (long key = 2; key <= 10_000; key++) {
+            String expected = key % 2 == 1 ? "v" + key : key % 4 == 2 ? "again" + key : null;
+            assertEquals(expected, map.get(key), "key " + key);
+        }
+        assertTrue(map.containsKey(3));
+        assertFalse(map.containsKey(4));
+    }
+
+    @Test
+    void testGet_NeverMissesStableKeysWhileWritersChurn() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        // Odd keys stay put for the whole test; even keys come and go, forcing rehashes
+        for (long key = 1; key < 2000; key += 2) {
+            map.put(key, key);
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(executor.submit(() -> {
+                    while (!done.get()) {
+                        for (long key = 1; key < 2000; key += 2) {
+                            assertEquals(key, map.get(key));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int round = 0; round < 50; round++) {
+                for (long key = 2; key < 20_000; key += 2) {
+                    map.put(key, key);
+                }
+                for (long key = 2; key < 20_000; key += 2) {
+                    map.remove(key);
+                }
+            }
+            done.set(true);
+            for (Future<?> reader : readers) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1000, map.size());
+    }
+}
@@ -0,0 +1,195 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableCarRepositoryTest {
+
+    private static final long SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRestart_ReplaysWriteAheadLog() throws Exception {
+        DurableCarRepository repository = open();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, 10000));
+        repository.addFuelEntryToCar(car.getId(), new FuelEntry(35.0, 1.6, 10600));
+        Car deleted = repository.save(new Car("Honda", "Civic", 2020));
+        repository.delete(deleted.getId());
+        crash(repository);
+
+        DurableCarRepository reopened = open();
+        Car recovered = reopened.findById(car.getId()).orElseThrow();
+        assertEquals("Toyota", recovered.getBrand());
+        assertEquals(car.getCreatedAt(), recovered.getCreatedAt());
+        assertFalse(reopened.existsById(deleted.getId()));
+
+        List<FuelEntry> entries = reopened.getFuelEntriesForCar(car.getId());
+        assertEquals(2, entries.size());
+        assertEquals(10600, entries.get(1).getOdometer());
+        assertEquals(35.0 * 1.6, entries.get(1).getTotalCost(), 0.0001);
+
+        // Ids keep counting from where they were
+        FuelEntry next = reopened.addFuelEntryToCar(car.getId(), new FuelEntry(30.0, 1.5, 11000));
+        assertTrue(next.getId() > entries.get(1).getId());
+        assertTrue(reopened.save(new Car("Ford", "Focus", 2018)).getId() > deleted.getId());
+        reopened.destroy();
+    }
+
+    @Test
+    void testRestart_LoadsSnapshotAndReplaysOnlyTail() throws Exception {
+        DurableCarRepository repository = open();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        for (int i = 0; i < 2000; i++) {
+            repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, 10000 + i * 500));
+        }
+        repository.snapshot();
+        repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, 2_000_000));
+        crash(repository);
+
+        // Segments covered by the snapshot are gone
+        assertEquals(1, countFiles("wal-"));
+
+        DurableCarRepository reopened = open();
+        Car recovered = reopened.findById(car.getId()).orElseThrow();
+        assertEquals(2001, recovered.getFuelEntryCount());
+        assertEquals(2_000_000, recovered.getFuelAggregate().getLastOdometer());
+        reopened.destroy();
+    }
+
+    @Test
+    void testRestart_IgnoresTornTail() throws Exception {
+        DurableCarRepository repository = open();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, 10000));
+        crash(repository);
+
+        // Simulate a record cut short by a crash
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.getFileName().toString().startsWith("wal-"))
+                    .sorted()
+                    .reduce((first, second) -> second)
+                    .orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        DurableCarRepository reopened = open();
+        assertTrue(reopened.existsById(car.getId()));
+        assertEquals(0, reopened.findById(car.getId()).orElseThrow().getFuelEntryCount());
+
+        // The log keeps working after the damaged record
+        reopened.addFuelEntryToCar(car.getId(), new FuelEntry(41.0, 1.5, 10100));
+        crash(reopened);
+        assertEquals(1, open().findById(car.getId()).orElseThrow().getFuelEntryCount());
+    }
+
+    @Test
+    void testAddFuelEntriesToCar_LogsAddedEntriesOnly() throws Exception {
+        DurableCarRepository repository = open();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        List<String> errors = repository.addFuelEntriesToCar(car.getId(), List.of(
+                new FuelEntry(40.0, 1.5, 10000),
+                new FuelEntry(41.0, 1.5, 9000),
+                new FuelEntry(42.0, 1.5, 10800)));
+        assertNull(errors.get(0));
+        assertNotNull(errors.get(1));
+        assertNull(errors.get(2));
+        crash(repository);
+
+        DurableCarRepository reopened = open();
+        List<FuelEntry> entries = reopened.getFuelEntriesForCar(car.getId());
+        assertEquals(2, entries.size());
+        assertEquals(10800, entries.get(1).getOdometer());
+        assertEquals(2, reopened.getFleetAggregates().getTotal().getEntryCount());
+        reopened.destroy();
+    }
+
+    @Test
+    void testSaveAll_AssignsIdBlockAndLogsEveryCar() throws Exception {
+        DurableCarRepository repository = open();
+        Car first = repository.save(new Car("Toyota", "Corolla", 2019));
+        List<Car> cars = repository.saveAll(List.of(
+                new Car("Honda", "Civic", 2020),
+                new Car("Ford", "Focus", 2018),
+                new Car("Kia", "Ceed", 2021)));
+        assertEquals(List.of(first.getId() + 1, first.getId() + 2, first.getId() + 3),
+                cars.stream().map(Car::getId).toList());
+        crash(repository);
+
+        DurableCarRepository reopened = open();
+        assertEquals("Focus", reopened.findById(first.getId() + 2).orElseThrow().getModel());
+        assertEquals(4, reopened.getFleetAggregates().getTotal().getCarCount());
+        assertEquals(first.getId() + 4, reopened.save(new Car("Mazda", "3", 2022)).getId());
+        reopened.destroy();
+    }
+
+    @Test
+    void testFailedAppend_LeavesNoChangeInMemory() throws Exception {
+        DurableCarRepository repository = open();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        FuelEntry first = repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, 10000));
+        repository.addFuelEntryToCar(car.getId(), new FuelEntry(35.0, 1.6, 10600));
+
+        // Too long for the record encoding, so the append fails after the save was applied
+        assertThrows(RuntimeException.class, () -> repository.save(new Car("x".repeat(70_000), "Civic", 2020)));
+        assertEquals(List.of(car.getId()), repository.findAll().stream().map(Car::getId).toList());
+
+        crash(repository);
+        assertThrows(IllegalStateException.class,
+                () -> repository.addFuelEntryToCar(car.getId(), new FuelEntry(30.0, 1.5, 11000)));
+        assertThrows(IllegalStateException.class, () -> repository.addFuelEntriesToCar(car.getId(),
+                List.of(new FuelEntry(30.0, 1.5, 11000), new FuelEntry(30.0, 1.5, 11500))));
+        FuelEntry update = new FuelEntry(50.0, 1.5, 10100);
+        update.setId(first.getId());
+        assertThrows(IllegalStateException.class, () -> repository.updateFuelEntry(car.getId(), update));
+        assertThrows(IllegalStateException.class, () -> repository.deleteFuelEntry(car.getId(), first.getId()));
+        assertThrows(IllegalStateException.class, () -> repository.delete(car.getId()));
+        Car renamed = new Car("Toyota", "Yaris", 2019);
+        renamed.setId(car.getId());
+        assertThrows(IllegalStateException.class, () -> repository.save(renamed));
+
+        Car current = repository.findById(car.getId()).orElseThrow();
+        assertSame(car, current);
+        List<FuelEntry> entries = repository.getFuelEntriesForCar(car.getId());
+        assertEquals(List.of(10000, 10600), entries.stream().map(FuelEntry::getOdometer).toList());
+        assertEquals(40.0, entries.get(0).getLiters());
+        assertEquals(2, repository.getFleetAggregates().getTotal().getEntryCount());
+        assertEquals(1, repository.getFleetAggregates().getTotal().getCarCount());
+    }
+
+    private DurableCarRepository open() throws IOException {
+        return new DurableCarRepository(directory, SEGMENT_SIZE, 0);
+    }
+
+    /**
+     * Stop without the shutdown snapshot, as if the process had died
+     */
+    private void crash(DurableCarRepository repository) throws Exception {
+        var field = DurableCarRepository.class.getDeclaredField("writeAheadLog");
+        field.setAccessible(true);
+        ((WriteAheadLog) field.get(repository)).close();
+    }
+
+    private long countFiles(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+}
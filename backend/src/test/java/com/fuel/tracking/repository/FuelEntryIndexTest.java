@@ -0,0 +1,39 @@
+package com.fuel.tracking.repository;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuelEntryIndexTest {
+
+    @Test
+    void testPutGetRemove_KeepCarAndPositionThroughRehash() {
+        FuelEntryIndex index = new FuelEntryIndex(4);
+        index.put(1, 7, 0);
+        assertEquals(new FuelEntryIndex.Location(7, 0), index.get(1));
+        index.put(1, 7, 3);
+        assertEquals(new FuelEntryIndex.Location(7, 3), index.get(1));
+        assertNull(index.get(2));
+        assertNull(index.get(0));
+        assertThrows(IllegalArgumentException.class, () -> index.put(0, 7, 0));
+        assertThrows(IllegalArgumentException.class, () -> index.put(5, 0, 0));
+
+        for (long id = 2; id <= 20_000; id++) {
+            index.put(id, id % 10 + 1, (int) id);
+        }
+        // Removing and re-adding churns tombstones through several rehashes
+        for (long id = 2; id <= 20_000; id += 2) {
+            index.remove(id);
+        }
+        index.remove(2);
+        for (long id = 2; id <= 20_000; id += 4) {
+            index.put(id, 99, -1);
+        }
+
+        for (long id = 2; id <= 20_000; id++) {
+            FuelEntryIndex.Location expected = id % 2 == 1 ? new FuelEntryIndex.Location(id % 10 + 1, (int) id)
+                    : id % 4 == 2 ? new FuelEntryIndex.Location(99, -1) : null;
+            assertEquals(expected, index.get(id), "id " + id);
+        }
+    }
+}
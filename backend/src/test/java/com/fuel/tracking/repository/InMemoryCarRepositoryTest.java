@@ -0,0 +1,279 @@
+package com.fuel.tracking.repository;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetAggregate;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelHistory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryCarRepositoryTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    void testFindPage_WalksCarsInIdOrder() {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        for (int i = 0; i < 7; i++) {
+            repository.save(new Car("Toyota", "Corolla", 2010 + i));
+        }
+        repository.delete(3L);
+
+        List<Car> first = repository.findPage(null, 3);
+        assertEquals(List.of(1L, 2L, 4L), first.stream().map(Car::getId).toList());
+        List<Car> second = repository.findPage(4L, 3);
+        assertEquals(List.of(5L, 6L, 7L), second.stream().map(Car::getId).toList());
+        assertTrue(repository.findPage(7L, 3).isEmpty());
+        assertTrue(repository.findPage(Long.MAX_VALUE, 3).isEmpty());
+        assertEquals(List.of(1L, 2L), repository.findPage(Long.MIN_VALUE, 2).stream().map(Car::getId).toList());
+    }
+
+    @Test
+    void testFindPage_SkipsDeletedIdsWithoutProbingThem() {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        Car first = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car last = new Car("Honda", "Civic", 2020);
+        // An id far past the others leaves a gap no scan of the id range could cross quickly
+        last.setId(Long.MAX_VALUE - 1);
+        repository.save(last);
+
+        assertEquals(List.of(first.getId(), last.getId()),
+                repository.findPage(null, 10).stream().map(Car::getId).toList());
+        assertEquals(List.of(last.getId()), repository.findPage(first.getId(), 10).stream().map(Car::getId).toList());
+        repository.delete(first.getId());
+        assertEquals(List.of(last.getId()), repository.findAll().stream().map(Car::getId).toList());
+    }
+
+    @Test
+    void testFindById_PrimitiveLookupAndCarsSavedWithTheirOwnId() {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        Car first = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car restored = new Car("Honda", "Civic", 2020);
+        restored.setId(50L);
+        repository.save(restored);
+
+        assertSame(first, repository.findById(first.getId().longValue()).orElseThrow());
+        assertSame(restored, repository.findById(50L).orElseThrow());
+        assertTrue(repository.findById(0L).isEmpty());
+        assertTrue(repository.existsById(50L));
+        assertFalse(repository.existsById(49L));
+
+        // New ids continue past the car that came with its own
+        Car next = repository.save(new Car("Ford", "Focus", 2018));
+        assertEquals(51L, next.getId());
+        assertEquals(List.of(1L, 50L, 51L), repository.findAll().stream().map(Car::getId).toList());
+        assertEquals(List.of(50L), repository.findPage(1L, 1).stream().map(Car::getId).toList());
+    }
+
+    @Test
+    void testFindFuelEntryById_FollowsEntriesAcrossDeletesAndRestores() {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, 10000 + i * 500)).getId());
+        }
+
+        // The entries after a deleted one move up and are still found where they now are
+        repository.deleteFuelEntry(car.getId(), ids.get(1));
+        assertTrue(repository.findFuelEntryById(ids.get(1)).isEmpty());
+        for (int i : new int[] {0, 2, 3, 4}) {
+            FuelEntry found = repository.findFuelEntryById(ids.get(i)).orElseThrow();
+            assertEquals(10000 + i * 500, found.getOdometer());
+            assertEquals(car.getId(), found.getCarId());
+        }
+        assertEquals(Optional.of(car.getId()), repository.findCarIdByFuelEntryId(ids.get(4)));
+
+        Car copy = new Car("Toyota", "Corolla", 2019);
+        copy.setId(40L);
+        copy.setFuelEntries(List.of(repository.findFuelEntryById(ids.get(3)).orElseThrow()));
+        repository.save(copy);
+        assertEquals(40L, repository.findFuelEntryById(ids.get(3)).orElseThrow().getCarId());
+
+        repository.delete(40L);
+        repository.delete(car.getId());
+        assertTrue(repository.findFuelEntryById(ids.get(0)).isEmpty());
+        assertTrue(repository.findFuelEntryById(ids.get(3)).isEmpty());
+    }
+
+    @Test
+    void testReads_ServePublishedSnapshotsWithoutCopying() {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        Car toyota = repository.save(new Car("Toyota", "Corolla", 2019));
+        repository.addFuelEntryToCar(toyota.getId(), new FuelEntry(40.0, 1.5, 10000));
+
+        List<Car> cars = repository.findAll();
+        List<FuelEntry> entries = repository.getFuelEntriesForCar(toyota.getId());
+
+        // Fuel entries do not change the set of cars, so the list is reused
+        repository.addFuelEntryToCar(toyota.getId(), new FuelEntry(42.0, 1.5, 10600));
+        assertSame(cars, repository.findAll());
+        assertEquals(1, entries.size());
+        assertEquals(10000, entries.get(0).getOdometer());
+        assertEquals(toyota.getId(), entries.get(0).getCarId());
+        assertEquals(2, repository.getFuelEntriesForCar(toyota.getId()).size());
+        assertThrows(UnsupportedOperationException.class, () -> entries.remove(0));
+        assertThrows(UnsupportedOperationException.class, () -> cars.remove(0));
+
+        Car honda = repository.save(new Car("Honda", "Civic", 2020));
+        assertEquals(List.of(toyota.getId(), honda.getId()),
+                repository.findAll().stream().map(Car::getId).toList());
+        assertEquals(1, cars.size());
+        repository.delete(toyota.getId());
+        assertEquals(List.of(honda.getId()), repository.findAll().stream().map(Car::getId).toList());
+    }
+
+    @Test
+    void testAddFuelEntriesToCars_BatchesHonourCarLocks() throws Exception {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        Car first = repository.save(new Car("Toyota", "Corolla", 2019));
+        Car second = repository.save(new Car("Honda", "Civic", 2020));
+        repository.addFuelEntryToCar(first.getId(), new FuelEntry(40.0, 1.5, 10000));
+
+        repository.lockAllCars();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Map<Long, List<String>>> pending = executor.submit(() -> repository.addFuelEntriesToCars(Map.of(
+                    first.getId(), List.of(new FuelEntry(40.0, 1.5, 9000), new FuelEntry(40.0, 1.5, 10500)),
+                    second.getId(), List.of(new FuelEntry(30.0, 1.6, 5000)),
+                    999L, List.of(new FuelEntry(30.0, 1.6, 5000)))));
+            Thread.sleep(100);
+            // The batches wait on the car locks like any other writer
+            assertFalse(pending.isDone());
+            assertEquals(1, first.getFuelEntryCount());
+
+            repository.unlockAllCars();
+            Map<Long, List<String>> errors = pending.get(5, TimeUnit.SECONDS);
+            assertTrue(errors.get(first.getId()).get(0).contains("less than previous highest"));
+            assertNull(errors.get(first.getId()).get(1));
+            assertEquals(Collections.singletonList(null), errors.get(second.getId()));
+            assertEquals(List.of("Car with id 999 not found"), errors.get(999L));
+            assertEquals(2, first.getFuelEntryCount());
+            assertEquals(1, second.getFuelEntryCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAddFuelEntryToCar_ConcurrentWritersKeepOdometerOrder() throws Exception {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        Car car = repository.save(new Car("Toyota", "Corolla", 2019));
+        int perThread = 2000;
+
+        // Every writer races the same readings, so most appends must be rejected
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                try {
+                    repository.addFuelEntryToCar(car.getId(), new FuelEntry(40.0, 1.5, i * 10));
+                } catch (IllegalArgumentException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+
+        FuelHistory.Snapshot history = car.getFuelHistory().snapshot();
+        assertEquals(THREADS * perThread, history.size() + rejected.get());
+        for (int i = 1; i < history.size(); i++) {
+            assertTrue(history.getOdometer(i) >= history.getOdometer(i - 1),
+                    "Odometer went backwards at entry " + i);
+        }
+        assertEquals(history.size(), history.aggregate().entryCount());
+    }
+
+    @Test
+    void testAddFuelEntryToCar_ParallelCarsKeepEveryEntry() throws Exception {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            cars.add(repository.save(new Car("Honda", "Civic", 2020)));
+        }
+        int perThread = 5000;
+
+        runConcurrently(thread -> {
+            Long carId = cars.get(thread).getId();
+            for (int i = 0; i < perThread; i++) {
+                repository.addFuelEntryToCar(carId, new FuelEntry(35.0, 1.6, i * 500));
+            }
+        });
+
+        for (Car car : cars) {
+            assertEquals(perThread, car.getFuelEntryCount());
+            assertEquals((perThread - 1) * 500, car.getFuelAggregate().getLastOdometer());
+        }
+    }
+
+    @Test
+    void testFleetAggregate_MatchesSumOfCarsAfterConcurrentWrites() throws Exception {
+        InMemoryCarRepository repository = new InMemoryCarRepository();
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < THREADS * 2; i++) {
+            cars.add(repository.save(new Car("Ford", "Focus", 2018)));
+        }
+        int perThread = 1000;
+
+        // Two threads per car, so both the adders and the per-car locks are contended
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                Long carId = cars.get((thread + i) % cars.size()).getId();
+                try {
+                    repository.addFuelEntryToCar(carId, new FuelEntry(30.0 + i % 7, 1.55, i * 100));
+                } catch (IllegalArgumentException e) {
+                    // Another thread already passed this reading
+                }
+            }
+        });
+        repository.delete(cars.get(0).getId());
+        cars.remove(0);
+
+        FleetAggregate fleet = repository.getFleetAggregates().getTotal();
+        assertEquals(cars.size(), fleet.getCarCount());
+        assertEquals(cars.stream().mapToLong(Car::getFuelEntryCount).sum(), fleet.getEntryCount());
+        assertEquals(cars.stream().mapToLong(car -> car.getFuelAggregate().getSegmentCount()).sum(),
+                fleet.getSegmentCount());
+        assertEquals(cars.stream().mapToDouble(car -> car.getFuelAggregate().getTotalLiters()).sum(),
+                fleet.getTotalLiters(), 1e-3);
+        assertEquals(cars.stream().mapToDouble(car -> car.getFuelAggregate().getTotalCost()).sum(),
+                fleet.getTotalCost(), 1e-3);
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
@@ -0,0 +1,95 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetRecomputeProgress;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelStats;
+import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetRecomputeServiceTest {
+
+    private CarRepository carRepository;
+    private FuelService fuelService;
+    private FuelStatsCache statsCache;
+    private FleetRecomputeService recomputeService;
+
+    @BeforeEach
+    void setUp() {
+        carRepository = new InMemoryCarRepository();
+        statsCache = new FuelStatsCache(1000);
+        fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository), statsCache);
+        recomputeService = new FleetRecomputeService(carRepository, fuelService, statsCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recomputeService.destroy();
+    }
+
+    @Test
+    void testStart_RecomputesEveryCarIntoTheCache() throws Exception {
+        List<Car> cars = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Car car = carRepository.save(new Car("Toyota", "Corolla", 2019));
+            // Uneven history lengths, so some batches take much longer than others
+            for (int j = 0; j < i % 40; j++) {
+                carRepository.addFuelEntryToCar(car.getId(), new FuelEntry(30.0 + j % 5, 1.5, j * 600));
+            }
+            cars.add(car);
+        }
+
+        recomputeService.start();
+        FleetRecomputeProgress progress = recomputeService.awaitCompletion(Duration.ofMinutes(1));
+
+        assertEquals(FleetRecomputeProgress.Status.COMPLETED, progress.getStatus());
+        assertEquals(500, progress.getTotalCars());
+        assertEquals(500, progress.getCompletedCars());
+        assertEquals(cars.stream().mapToLong(Car::getFuelEntryCount).sum(), progress.getCompletedEntries());
+        assertEquals(100.0, progress.getPercentComplete());
+        assertNotNull(progress.getFinishedAt());
+
+        for (Car car : cars) {
+            FuelStats cached = statsCache.get(car.getId(), car.getVersion()).orElseThrow();
+            FuelStats expected = fuelService.recalculateFuelStats(car.getId());
+            assertEquals(expected.getTotalEntries(), cached.getTotalEntries());
+            assertEquals(expected.getTotalFuelLiters(), cached.getTotalFuelLiters());
+            assertEquals(expected.getAverageConsumption(), cached.getAverageConsumption());
+        }
+
+        // A later write makes the car's cached stats stale
+        Car changed = cars.get(1);
+        carRepository.addFuelEntryToCar(changed.getId(), new FuelEntry(40.0, 1.5, 100000));
+        assertTrue(statsCache.get(changed.getId(), changed.getVersion()).isEmpty());
+        assertTrue(statsCache.get(cars.get(2).getId(), cars.get(2).getVersion()).isPresent());
+    }
+
+    @Test
+    void testStart_JobThatCannotBeScheduledIsMarkedFailed() throws Exception {
+        carRepository.save(new Car("Toyota", "Corolla", 2019));
+        recomputeService.destroy();
+
+        assertThrows(RejectedExecutionException.class, () -> recomputeService.start());
+
+        FleetRecomputeProgress progress = recomputeService.awaitCompletion(Duration.ofSeconds(1));
+        assertEquals(FleetRecomputeProgress.Status.FAILED, progress.getStatus());
+        assertEquals(1, progress.getTotalCars());
+        assertNotNull(progress.getFinishedAt());
+    }
+
+    @Test
+    void testGetProgress_IdleBeforeFirstRecompute() {
+        assertEquals(FleetRecomputeProgress.Status.IDLE, recomputeService.getProgress().getStatus());
+    }
+}
@@ -0,0 +1,92 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FleetStats;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetServiceTest {
+
+    private CarService carService;
+    private FuelService fuelService;
+    private FleetService fleetService;
+
+    @BeforeEach
+    void setUp() {
+        CarRepository carRepository = new InMemoryCarRepository();
+        carService = new CarService(carRepository);
+        fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository),
+                new FuelStatsCache(1000));
+        fleetService = new FleetService(carRepository);
+    }
+
+    @Test
+    void testCalculateFleetStats_SumsEveryCar() {
+        Long corolla = carService.createCar(new Car("Toyota", "Corolla", 2019)).getId();
+        Long civic = carService.createCar(new Car("Honda", "Civic", 2020)).getId();
+        carService.createCar(new Car("Ford", "Focus", 2018));
+
+        fuelService.addFuelEntry(corolla, new FuelEntry(40.0, 1.5, 10000));
+        fuelService.addFuelEntry(corolla, new FuelEntry(30.0, 1.5, 10500)); // 6.0 L/100km
+        fuelService.addFuelEntry(civic, new FuelEntry(20.0, 2.0, 5000));
+        fuelService.addFuelEntry(civic, new FuelEntry(40.0, 2.0, 5500)); // 8.0 L/100km
+
+        FleetStats stats = fleetService.calculateFleetStats();
+
+        assertEquals(3L, stats.getTotalCars());
+        assertEquals(4L, stats.getTotalEntries());
+        assertEquals(130.0, stats.getTotalFuelLiters(), 0.01);
+        assertEquals(225.0, stats.getTotalCost(), 0.01);
+        assertEquals(7.0, stats.getAverageConsumption(), 0.01);
+        assertEquals(1.73, stats.getAveragePricePerLiter(), 0.01);
+    }
+
+    @Test
+    void testCalculateFleetStats_GroupedByBrandAndModel() {
+        Long corolla2019 = carService.createCar(new Car("Toyota", "Corolla", 2019)).getId();
+        Long corolla2020 = carService.createCar(new Car("Toyota", "Corolla", 2020)).getId();
+        Long civic = carService.createCar(new Car("Honda", "Civic", 2020)).getId();
+
+        fuelService.addFuelEntry(corolla2019, new FuelEntry(40.0, 1.5, 10000));
+        fuelService.addFuelEntry(corolla2019, new FuelEntry(30.0, 1.5, 10500)); // 6.0 L/100km
+        fuelService.addFuelEntry(corolla2020, new FuelEntry(35.0, 1.5, 2000));
+        fuelService.addFuelEntry(corolla2020, new FuelEntry(40.0, 1.5, 2500)); // 8.0 L/100km
+        fuelService.addFuelEntry(civic, new FuelEntry(25.0, 2.0, 5000));
+
+        List<FleetStats> byModel = fleetService.calculateFleetStats(List.of("brand", "model"));
+
+        assertEquals(2, byModel.size());
+        FleetStats hondas = byModel.get(0);
+        assertEquals("Honda", hondas.getBrand());
+        assertEquals("Civic", hondas.getModel());
+        assertNull(hondas.getYear());
+        assertEquals(1L, hondas.getTotalCars());
+        assertEquals(0.0, hondas.getAverageConsumption());
+
+        FleetStats corollas = byModel.get(1);
+        assertEquals("Corolla", corollas.getModel());
+        assertEquals(2L, corollas.getTotalCars());
+        assertEquals(4L, corollas.getTotalEntries());
+        assertEquals(145.0, corollas.getTotalFuelLiters(), 0.01);
+        assertEquals(7.0, corollas.getAverageConsumption(), 0.01);
+
+        List<FleetStats> byYear = fleetService.calculateFleetStats(List.of("year"));
+        assertEquals(List.of(2019, 2020), byYear.stream().map(FleetStats::getYear).toList());
+        assertEquals(2L, byYear.get(1).getTotalCars());
+        assertNull(byYear.get(1).getBrand());
+    }
+
+    @Test
+    void testCalculateFleetStats_RejectsUnknownGroupField() {
+        assertThrows(IllegalArgumentException.class,
+                () -> fleetService.calculateFleetStats(List.of("brand", "color")));
+    }
+}
@@ -0,0 +1,112 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuelIngestPipelineTest {
+
+    private final CarRepository carRepository = new InMemoryCarRepository();
+
+    @Test
+    void testPublish_ConcurrentCarsThroughSmallBufferKeepPerCarOrder() throws Exception {
+        // A buffer of 8 for 8 writers forces publishers to wait for space
+        FuelIngestPipeline pipeline = new FuelIngestPipeline(carRepository, 2, 8, 4);
+        int cars = 8;
+        int entriesPerCar = 500;
+        List<Long> carIds = new ArrayList<>();
+        for (int i = 0; i < cars; i++) {
+            carIds.add(carRepository.save(new Car("Toyota", "Corolla", 2019)).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(cars);
+        List<Future<List<CompletableFuture<FuelEntry>>>> published = new ArrayList<>();
+        for (Long carId : carIds) {
+            published.add(executor.submit(() -> {
+                List<CompletableFuture<FuelEntry>> acks = new ArrayList<>();
+                for (int i = 0; i < entriesPerCar; i++) {
+                    acks.add(pipeline.publish(carId, new FuelEntry(40.0, 1.5, 10000 + i * 100)));
+                }
+                return acks;
+            }));
+        }
+        for (Future<List<CompletableFuture<FuelEntry>>> acks : published) {
+            for (CompletableFuture<FuelEntry> ack : acks.get(30, TimeUnit.SECONDS)) {
+                assertNotNull(ack.get(30, TimeUnit.SECONDS).getId());
+            }
+        }
+        executor.shutdown();
+
+        // Any reordering within a car would have failed the odometer check
+        for (Long carId : carIds) {
+            assertEquals(entriesPerCar, carRepository.findById(carId).orElseThrow().getFuelEntryCount());
+        }
+        assertEquals(cars * entriesPerCar, carRepository.getFleetAggregates().getTotal().getEntryCount());
+        assertEquals(0, pipeline.getPending());
+        pipeline.destroy();
+    }
+
+    @Test
+    void testAddFuelEntry_ThroughPipelineReportsRejectionsLikeSyncPath() throws Exception {
+        FuelIngestPipeline pipeline = new FuelIngestPipeline(carRepository, 1, 16, 16);
+        FuelService fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository),
+                new FuelStatsCache(100), pipeline);
+        Long carId = carRepository.save(new Car("Honda", "Civic", 2020)).getId();
+
+        FuelEntry added = fuelService.addFuelEntry(carId, new FuelEntry(40.0, 1.5, 10000));
+        assertNotNull(added.getId());
+        assertEquals(carId, added.getCarId());
+
+        IllegalArgumentException rejected = assertThrows(IllegalArgumentException.class,
+                () -> fuelService.addFuelEntry(carId, new FuelEntry(40.0, 1.5, 9000)));
+        assertTrue(rejected.getMessage().contains("Odometer must always increase"));
+        assertThrows(CarService.CarNotFoundException.class,
+                () -> fuelService.addFuelEntry(999L, new FuelEntry(40.0, 1.5, 9000)));
+        assertEquals(1, fuelService.calculateFuelStats(carId).getTotalEntries());
+        pipeline.destroy();
+    }
+
+    @Test
+    void testPublish_CarDeletedBeforeTheWriterReportsCarNotFound() throws Exception {
+        FuelIngestPipeline pipeline = new FuelIngestPipeline(carRepository, 1, 16, 16);
+        Long carId = carRepository.save(new Car("Honda", "Civic", 2020)).getId();
+        carRepository.delete(carId);
+
+        CompletableFuture<FuelEntry> ack = pipeline.publish(carId, new FuelEntry(40.0, 1.5, 10000));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> ack.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CarService.CarNotFoundException.class, failure.getCause());
+        assertEquals("Car not found with id: " + carId, failure.getCause().getMessage());
+        pipeline.destroy();
+    }
+
+    @Test
+    void testDestroy_AppliesQueuedEntriesThenRefusesNewOnes() throws Exception {
+        FuelIngestPipeline pipeline = new FuelIngestPipeline(carRepository, 1, 1024, 8);
+        Long carId = carRepository.save(new Car("Ford", "Focus", 2018)).getId();
+        List<CompletableFuture<FuelEntry>> acks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            acks.add(pipeline.publish(carId, new FuelEntry(30.0, 1.6, 5000 + i * 50)));
+        }
+
+        pipeline.destroy();
+
+        assertTrue(acks.stream().allMatch(ack -> ack.isDone() && !ack.isCompletedExceptionally()));
+        assertEquals(200, carRepository.findById(carId).orElseThrow().getFuelEntryCount());
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.publish(carId, new FuelEntry(30.0, 1.6, 99999)));
+    }
+}
@@ -1,13 +1,18 @@
 package com.fuel.tracking.service;
 
+import com.fuel.tracking.exception.ResourceNotFoundException;
 import com.fuel.tracking.model.Car;
 import com.fuel.tracking.model.FuelEntry;
 import com.fuel.tracking.model.FuelStats;
 import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
 import com.fuel.tracking.repository.InMemoryCarRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class FuelServiceTest {
@@ -20,7 +25,8 @@ class FuelServiceTest {
     void setUp() {
         carRepository = new InMemoryCarRepository();
         carService = new CarService(carRepository);
-        fuelService = new FuelService(carRepository);
+        fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository),
+                new FuelStatsCache(1000));
     }
 
     @Test
@@ -50,6 +56,40 @@ class FuelServiceTest {
         assertEquals(6.1, stats.getAverageConsumption(), 0.1);
     }
 
+    @Test
+    void testAddFuelEntries_GroupsByCarAndReportsEachFailure() {
+        Long toyota = carService.createCar(new Car("Toyota", "Corolla", 2018)).getId();
+        Long honda = carService.createCar(new Car("Honda", "Civic", 2020)).getId();
+
+        List<FuelEntry> entries = List.of(
+                entryFor(toyota, new FuelEntry(40.0, 1.5, 10000)),
+                entryFor(honda, new FuelEntry(30.0, 1.6, 5000)),
+                entryFor(toyota, new FuelEntry(35.0, 1.5, 9000)),   // odometer goes back
+                entryFor(toyota, new FuelEntry(35.0, 1.5, 10500)),
+                entryFor(999L, new FuelEntry(35.0, 1.5, 10500)),    // no such car
+                entryFor(honda, new FuelEntry(-1.0, 1.6, 5500)));   // invalid liters
+
+        List<String> errors = fuelService.addFuelEntries(entries);
+
+        assertNull(errors.get(0));
+        assertNull(errors.get(1));
+        assertTrue(errors.get(2).contains("Odometer must always increase"));
+        assertNull(errors.get(3));
+        assertEquals("Car not found with id: 999", errors.get(4));
+        assertEquals("Fuel liters must be positive", errors.get(5));
+
+        assertEquals(2, fuelService.getFuelEntriesForCar(toyota).size());
+        assertEquals(1, fuelService.getFuelEntriesForCar(honda).size());
+        assertEquals(3, carRepository.getFleetAggregates().getTotal().getEntryCount());
+        assertEquals(fuelService.recalculateFuelStats(toyota).getTotalCost(),
+                fuelService.calculateFuelStats(toyota).getTotalCost());
+    }
+
+    private static FuelEntry entryFor(Long carId, FuelEntry fuelEntry) {
+        fuelEntry.setCarId(carId);
+        return fuelEntry;
+    }
+
     @Test
     void testCalculateFuelStats_WithSingleEntry() {
         Car car = new Car("Honda", "Civic", 2020);
@@ -64,4 +104,141 @@ class FuelServiceTest {
         assertEquals(1, stats.getTotalEntries());
         assertEquals(0.0, stats.getAverageConsumption(), 0.01); // Can't calculate with 1 entry
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCalculateFuelStats_MatchesFullRecalculation() {
+        Car car = carService.createCar(new Car("Ford", "Focus", 2017));
+        Long carId = car.getId();
+
+        // Includes a repeated odometer reading, which must not count as a segment
+        int odometer = 20000;
+        for (int i = 0; i < 500; i++) {
+            odometer += (i % 7 == 0) ? 0 : 300 + (i * 37) % 400;
+            fuelService.addFuelEntry(carId, new FuelEntry(30.0 + (i % 13) * 0.7, 1.4 + (i % 5) * 0.03, odometer));
+        }
+
+        FuelStats incremental = fuelService.calculateFuelStats(carId);
+        FuelStats recalculated = fuelService.recalculateFuelStats(carId);
+
+        assertEquals(recalculated.getTotalFuelLiters(), incremental.getTotalFuelLiters());
+        assertEquals(recalculated.getTotalCost(), incremental.getTotalCost());
+        assertEquals(recalculated.getAverageConsumption(), incremental.getAverageConsumption());
+        assertEquals(recalculated.getTotalEntries(), incremental.getTotalEntries());
+        assertEquals(recalculated.getAveragePricePerLiter(), incremental.getAveragePricePerLiter());
+        assertEquals(recalculated.getCostPer100km(), incremental.getCostPer100km());
+    }
+
+    @Test
+    void testUpdateAndDeleteFuelEntry_ById() {
+        Car car = carService.createCar(new Car("Mazda", "3", 2021));
+        Long carId = car.getId();
+        fuelService.addFuelEntry(carId, new FuelEntry(40.0, 1.5, 10000));
+        FuelEntry middle = fuelService.addFuelEntry(carId, new FuelEntry(35.0, 1.6, 10600));
+        FuelEntry last = fuelService.addFuelEntry(carId, new FuelEntry(42.0, 1.55, 11250));
+
+        FuelEntry found = fuelService.getFuelEntry(carId, middle.getId());
+        assertEquals(10600, found.getOdometer());
+        assertEquals(carId, found.getCarId());
+
+        fuelService.updateFuelEntry(carId, middle.getId(), new FuelEntry(30.0, 1.6, 10500));
+        assertEquals(10500, fuelService.getFuelEntry(carId, middle.getId()).getOdometer());
+        assertEquals(112.0, fuelService.calculateFuelStats(carId).getTotalFuelLiters(), 0.01);
+
+        // Must stay between its neighbours
+        assertThrows(IllegalArgumentException.class,
+                () -> fuelService.updateFuelEntry(carId, middle.getId(), new FuelEntry(30.0, 1.6, 12000)));
+
+        fuelService.deleteFuelEntry(carId, last.getId());
+        assertThrows(ResourceNotFoundException.class, () -> fuelService.getFuelEntry(carId, last.getId()));
+        assertEquals(2, fuelService.calculateFuelStats(carId).getTotalEntries());
+
+        // Entries are only reachable through their own car
+        Car other = carService.createCar(new Car("Kia", "Rio", 2019));
+        assertThrows(ResourceNotFoundException.class, () -> fuelService.getFuelEntry(other.getId(), middle.getId()));
+    }
+
+    @Test
+    void testCalculateFuelStats_TimeWindow() {
+        Car car = carService.createCar(new Car("Skoda", "Octavia", 2022));
+        Long carId = car.getId();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+        // One fill-up on the 1st of each month of 2024
+        for (int month = 0; month < 12; month++) {
+            FuelEntry fuelEntry = new FuelEntry(40.0 + month, 1.5, 10000 + month * 600);
+            fuelEntry.setTimestamp(start.plusMonths(month));
+            fuelService.addFuelEntry(carId, fuelEntry);
+        }
+
+        // Q3: July, August, September
+        FuelStats q3 = fuelService.calculateFuelStats(carId,
+                LocalDateTime.of(2024, 7, 1, 0, 0), LocalDateTime.of(2024, 10, 1, 0, 0));
+        assertEquals(3, q3.getTotalEntries());
+        assertEquals(46.0 + 47.0 + 48.0, q3.getTotalFuelLiters(), 0.01);
+        // Segments inside the window only: (47 + 48) / 2 liters per 600 km
+        assertEquals(7.9, q3.getAverageConsumption(), 0.01);
+
+        FuelStats all = fuelService.calculateFuelStats(carId, null, null);
+        assertEquals(fuelService.calculateFuelStats(carId).getTotalCost(), all.getTotalCost());
+
+        assertEquals(0, fuelService.calculateFuelStats(carId,
+                LocalDateTime.of(2025, 1, 1, 0, 0), null).getTotalEntries());
+        // Bounds too far out for epoch nanos cover everything rather than wrapping around
+        assertEquals(12, fuelService.calculateFuelStats(carId,
+                LocalDateTime.of(1, 1, 1, 0, 0), LocalDateTime.of(9999, 12, 31, 0, 0)).getTotalEntries());
+        assertEquals(0, fuelService.calculateFuelStats(carId,
+                LocalDateTime.of(1, 1, 1, 0, 0), LocalDateTime.of(1600, 1, 1, 0, 0)).getTotalEntries());
+        assertEquals(0, fuelService.calculateFuelStats(carId,
+                LocalDateTime.of(3000, 1, 1, 0, 0), null).getTotalEntries());
+        assertThrows(IllegalArgumentException.class, () -> fuelService.calculateFuelStats(carId,
+                LocalDateTime.of(2024, 5, 1, 0, 0), LocalDateTime.of(2024, 4, 1, 0, 0)));
+
+        // An entry recorded out of time order still lands in the right window
+        FuelEntry late = new FuelEntry(30.0, 1.5, 20000);
+        late.setTimestamp(LocalDateTime.of(2024, 8, 15, 12, 0));
+        fuelService.addFuelEntry(carId, late);
+        assertEquals(4, fuelService.calculateFuelStats(carId,
+                LocalDateTime.of(2024, 7, 1, 0, 0), LocalDateTime.of(2024, 10, 1, 0, 0)).getTotalEntries());
+    }
+
+    @Test
+    void testRangeStats_MatchScanOfTheSameEntries() {
+        Car car = carService.createCar(new Car("Volvo", "V60", 2020));
+        Long carId = car.getId();
+        int odometer = 10000;
+        for (int i = 0; i < 200; i++) {
+            odometer += (i % 9 == 0) ? 0 : 400 + (i * 53) % 300;
+            fuelService.addFuelEntry(carId, new FuelEntry(35.0 + (i % 11) * 0.9, 1.45 + (i % 4) * 0.05, odometer));
+        }
+        List<FuelEntry> entries = fuelService.getFuelEntriesForCar(carId);
+
+        // Odometer range, inclusive at both ends
+        int fromKm = entries.get(40).getOdometer();
+        int toKm = entries.get(120).getOdometer();
+        List<FuelEntry> inRange = entries.stream()
+                .filter(entry -> entry.getOdometer() >= fromKm && entry.getOdometer() <= toKm)
+                .toList();
+        assertStatsMatch(inRange, fuelService.calculateFuelStatsForOdometerRange(carId, fromKm, toKm));
+
+        // Entry index range, end exclusive
+        assertStatsMatch(entries.subList(17, 163), fuelService.calculateFuelStatsForEntryRange(carId, 17, 163));
+        assertStatsMatch(entries, fuelService.calculateFuelStatsForEntryRange(carId, null, 10_000));
+        assertEquals(0, fuelService.calculateFuelStatsForOdometerRange(carId, 0, 9999).getTotalEntries());
+        assertThrows(IllegalArgumentException.class,
+                () -> fuelService.calculateFuelStatsForEntryRange(carId, 50, 10));
+    }
+
+    private void assertStatsMatch(List<FuelEntry> expectedEntries, FuelStats actual) {
+        Car scratch = carService.createCar(new Car("Scratch", "Copy", 2020));
+        for (FuelEntry entry : expectedEntries) {
+            fuelService.addFuelEntry(scratch.getId(),
+                    new FuelEntry(entry.getLiters(), entry.getPricePerLiter(), entry.getOdometer()));
+        }
+        FuelStats expected = fuelService.recalculateFuelStats(scratch.getId());
+
+        assertEquals(expected.getTotalEntries(), actual.getTotalEntries());
+        assertEquals(expected.getTotalFuelLiters(), actual.getTotalFuelLiters(), 0.01);
+        assertEquals(expected.getTotalCost(), actual.getTotalCost(), 0.01);
+        assertEquals(expected.getAverageConsumption(), actual.getAverageConsumption(), 0.01);
+    }
+}
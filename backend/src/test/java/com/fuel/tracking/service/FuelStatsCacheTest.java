@@ -0,0 +1,60 @@
+package com.fuel.tracking.service;
+
+import com.fuel.tracking.model.Car;
+import com.fuel.tracking.model.FuelEntry;
+import com.fuel.tracking.model.FuelStats;
+import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
+import com.fuel.tracking.repository.InMemoryCarRepository;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuelStatsCacheTest {
+
+    @Test
+    void testCalculateFuelStats_RepeatReadsHitUntilTheCarChanges() {
+        CarRepository carRepository = new InMemoryCarRepository();
+        FuelStatsCache statsCache = new FuelStatsCache(100);
+        FuelService fuelService = new FuelService(carRepository,
+                new IndexedFuelEntryRepository(carRepository), statsCache);
+
+        Long carId = carRepository.save(new Car("Toyota", "Corolla", 2019)).getId();
+        fuelService.addFuelEntry(carId, new FuelEntry(40.0, 1.5, 10000));
+        fuelService.addFuelEntry(carId, new FuelEntry(35.0, 1.6, 10600));
+
+        FuelStats first = fuelService.calculateFuelStats(carId);
+        assertSame(first, fuelService.calculateFuelStats(carId));
+        assertSame(first, fuelService.calculateFuelStats(carId));
+        assertEquals(1, statsCache.getMetrics().misses());
+        assertEquals(2, statsCache.getMetrics().hits());
+
+        long version = carRepository.findById(carId).orElseThrow().getVersion();
+        fuelService.addFuelEntry(carId, new FuelEntry(42.0, 1.55, 11250));
+        assertTrue(carRepository.findById(carId).orElseThrow().getVersion() > version);
+
+        FuelStats updated = fuelService.calculateFuelStats(carId);
+        assertEquals(3, updated.getTotalEntries());
+        assertEquals(2, statsCache.getMetrics().misses());
+        assertEquals(1, statsCache.size());
+    }
+
+    @Test
+    void testPut_EvictsLeastRecentlyUsedWhenFull() {
+        FuelStatsCache statsCache = new FuelStatsCache(16);
+        for (long carId = 1; carId <= 1000; carId++) {
+            statsCache.put(carId, 1, FuelStats.builder().build());
+        }
+
+        assertTrue(statsCache.size() <= 16);
+        assertEquals(1000 - statsCache.size(), statsCache.getMetrics().evictions());
+        assertTrue(statsCache.get(1000L, 1).isPresent());
+        assertTrue(statsCache.get(1L, 1).isEmpty());
+
+        // An older version never overwrites a newer one
+        statsCache.put(1000L, 3, FuelStats.builder().totalEntries(3).build());
+        statsCache.put(1000L, 2, FuelStats.builder().totalEntries(2).build());
+        assertEquals(3, statsCache.get(1000L, 3).orElseThrow().getTotalEntries());
+        assertTrue(statsCache.get(1000L, 2).isEmpty());
+    }
+}
@@ -0,0 +1,126 @@
+package com.fuel.tracking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuel.tracking.dto.ApiResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseBodyCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testEncode_SerializesOncePerVersion() throws Exception {
+        ResponseBodyCache cache = new ResponseBodyCache(objectMapper, 100, true);
+        AtomicInteger serialized = new AtomicInteger();
+
+        ResponseBodyCache.EncodedBody first = cache.encode("cars", 1, () -> {
+            serialized.incrementAndGet();
+            return ApiResponse.success(List.of("Corolla"));
+        });
+        ResponseBodyCache.EncodedBody again = cache.encode("cars", 1, () -> {
+            serialized.incrementAndGet();
+            return ApiResponse.success(List.of("stale"));
+        });
+
+        assertSame(first, again);
+        assertEquals(1, serialized.get());
+        assertEquals(objectMapper.writeValueAsString(ApiResponse.success(List.of("Corolla"))),
+                new String(first.json()));
+
+        ResponseBodyCache.EncodedBody next = cache.encode("cars", 2,
+                () -> ApiResponse.success(List.of("Corolla", "Civic")));
+        assertTrue(new String(next.json()).contains("Civic"));
+    }
+
+    @Test
+    void testEncode_SkipsCachingWhenTheVersionMovedDuringTheBuild() {
+        ResponseBodyCache cache = new ResponseBodyCache(objectMapper, 100, true);
+        AtomicLong version = new AtomicLong(1);
+
+        ResponseBodyCache.EncodedBody raced = cache.encode("cars", 1, version::get, () -> {
+            // A write lands between reading the version and reading the data
+            version.incrementAndGet();
+            return ApiResponse.success(List.of("Corolla", "Civic"));
+        });
+        assertTrue(new String(raced.json()).contains("Civic"));
+
+        // Nothing was kept under the old version, and the next read caches under the new one
+        assertNotSame(raced, cache.encode("cars", 1, () -> ApiResponse.success(List.of("Corolla"))));
+        ResponseBodyCache.EncodedBody current = cache.encode("cars", 2, version::get,
+                () -> ApiResponse.success(List.of("Corolla", "Civic")));
+        assertSame(current, cache.encode("cars", 2, () -> ApiResponse.success(List.of("stale"))));
+    }
+
+    @Test
+    void testEncode_ConcurrentMissesShareOneSerialization() throws Exception {
+        ResponseBodyCache cache = new ResponseBodyCache(objectMapper, 100, true);
+        AtomicInteger serialized = new AtomicInteger();
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ResponseBodyCache.EncodedBody>> bodies = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                bodies.add(executor.submit(() -> cache.encode("cars", 1, () -> {
+                    serialized.incrementAndGet();
+                    release.join();
+                    return ApiResponse.success(List.of("Corolla"));
+                })));
+            }
+            // Let every caller reach the cache while the first serialization is held up
+            Thread.sleep(100);
+            release.complete(null);
+            ResponseBodyCache.EncodedBody first = bodies.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<ResponseBodyCache.EncodedBody> body : bodies) {
+                assertSame(first, body.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, serialized.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGzipped_OnlyForBodiesWorthCompressing() throws Exception {
+        ResponseBodyCache cache = new ResponseBodyCache(objectMapper, 100, true);
+
+        assertNull(cache.encode("small", 1, () -> ApiResponse.success("ok")).gzipped());
+
+        ResponseBodyCache.EncodedBody large = cache.encode("large", 1,
+                () -> ApiResponse.success(Collections.nCopies(500, "Toyota Corolla")));
+        byte[] gzipped = large.gzipped();
+        assertNotNull(gzipped);
+        assertTrue(gzipped.length < large.json().length);
+        assertSame(gzipped, large.gzipped());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+            assertArrayEquals(large.json(), in.readAllBytes());
+        }
+
+        ResponseBodyCache disabled = new ResponseBodyCache(objectMapper, 100, false);
+        assertNull(disabled.encode("large", 1,
+                () -> ApiResponse.success(Collections.nCopies(500, "Toyota Corolla"))).gzipped());
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        assertTrue(ResponseBodyCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseBodyCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertFalse(ResponseBodyCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseBodyCache.acceptsGzip("deflate"));
+        assertFalse(ResponseBodyCache.acceptsGzip(null));
+    }
+}
@@ -0,0 +1,105 @@
+package com.fuel.tracking.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int THREADS = 16;
+
+    @Test
+    void testRun_ConcurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<Long, String> flights = new SingleFlight<>();
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runHerd(() -> flights.run(1L, () -> {
+            computations.incrementAndGet();
+            await(release);
+            return "stats";
+        }), () -> flights.inFlight() == 1, release);
+
+        for (Future<String> result : results) {
+            assertEquals("stats", result.get(1, TimeUnit.MINUTES));
+        }
+        assertEquals(1, computations.get());
+        assertEquals(0, flights.inFlight());
+
+        // Once finished, the next call computes again
+        assertEquals("fresh", flights.run(1L, () -> "fresh"));
+    }
+
+    @Test
+    void testRun_WaitersSeeTheLeadersException() throws Exception {
+        SingleFlight<Long, String> flights = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runHerd(() -> flights.run(7L, () -> {
+            await(release);
+            throw new IllegalArgumentException("Car with id 7 not found");
+        }), () -> flights.inFlight() == 1, release);
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.MINUTES));
+            assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        }
+        assertEquals(0, flights.inFlight());
+    }
+
+    /**
+     * Start every caller, wait until one computation is in flight and the
+     * rest have had time to join it, then let the computation finish
+     */
+    private List<Future<String>> runHerd(Callable<String> call, BooleanSupplier started,
+            CountDownLatch release) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch arrived = new CountDownLatch(THREADS);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(() -> {
+                    arrived.countDown();
+                    return call.call();
+                }));
+            }
+            assertTrue(arrived.await(1, TimeUnit.MINUTES));
+            while (!started.getAsBoolean()) {
+                Thread.onSpinWait();
+            }
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<String> result : results) {
+                try {
+                    result.get(1, TimeUnit.MINUTES);
+                } catch (ExecutionException e) {
+                    // Checked by the caller
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
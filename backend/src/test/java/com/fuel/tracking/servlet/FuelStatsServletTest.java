@@ -3,9 +3,12 @@ package com.fuel.tracking.servlet;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fuel.tracking.model.Car;
 import com.fuel.tracking.repository.CarRepository;
+import com.fuel.tracking.repository.IndexedFuelEntryRepository;
 import com.fuel.tracking.repository.InMemoryCarRepository;
 import com.fuel.tracking.service.CarService;
 import com.fuel.tracking.service.FuelService;
+import com.fuel.tracking.service.FuelStatsCache;
+import com.fuel.tracking.service.ResponseBodyCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.mock.web.MockServletConfig;
@@ -32,7 +35,8 @@ class FuelStatsServletTest {
         // Setup repositories and services
         carRepository = new InMemoryCarRepository();
         carService = new CarService(carRepository);
-        fuelService = new FuelService(carRepository);
+        fuelService = new FuelService(carRepository, new IndexedFuelEntryRepository(carRepository),
+                new FuelStatsCache(1000));
         objectMapper = new ObjectMapper();
 
         // Create a test car
@@ -48,6 +52,8 @@ class FuelStatsServletTest {
         GenericWebApplicationContext webApplicationContext = new GenericWebApplicationContext();
         webApplicationContext.getBeanFactory().registerSingleton("fuelService", fuelService);
         webApplicationContext.getBeanFactory().registerSingleton("objectMapper", objectMapper);
+        webApplicationContext.getBeanFactory().registerSingleton("responseBodyCache",
+                new ResponseBodyCache(objectMapper, 1000, true));
         webApplicationContext.refresh();
         
         servletContext.setAttribute(WebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE, webApplicationContext);
@@ -124,4 +130,28 @@ class FuelStatsServletTest {
         assertTrue(response.getContentType().startsWith("application/json"));
         assertTrue(response.getContentAsString().contains("\"success\":false"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testServlet_MatchingETag_ReturnsNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setMethod("GET");
+        request.setParameter("carId", carId.toString());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        servlet.doGet(request, response);
+        String etag = response.getHeader("ETag");
+        // Weak, since the identity and gzip bodies share it
+        assertTrue(etag.startsWith("W/\""));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest();
+        conditional.setMethod("GET");
+        conditional.setParameter("carId", carId.toString());
+        conditional.addHeader("If-None-Match", etag);
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        servlet.doGet(conditional, notModified);
+
+        assertEquals(304, notModified.getStatus());
+        assertEquals("", notModified.getContentAsString());
+        assertEquals(etag, notModified.getHeader("ETag"));
+    }
+}
@@ -8,12 +8,17 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ApiClient {
     private final String baseUrl;
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
 
+    // Last body and ETag per URL, so unchanged resources are not downloaded again
+    private final Map<String, CachedResponse> responseCache = new ConcurrentHashMap<>();
+
     public ApiClient(String baseUrl) {
         this.baseUrl = baseUrl.endsWith("/") ? baseUrl : baseUrl + "/";
         this.httpClient = HttpClient.newBuilder()
@@ -122,23 +127,10 @@ public class ApiClient {
      */
     public FuelStatsResponse getFuelStats(Long carId) throws ApiClientException {
         try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(baseUrl + "api/cars/" + carId + "/fuel/stats"))
-                    .header("Accept", "application/json")
-                    .timeout(Duration.ofSeconds(10))
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request,
-                    HttpResponse.BodyHandlers.ofString());
-
-            // Check for HTTP errors
-            if (response.statusCode() >= 400) {
-                throw new ApiClientException("HTTP error: " + response.statusCode());
-            }
+            String body = getConditionally(baseUrl + "api/cars/" + carId + "/fuel/stats");
 
             ApiResponse<FuelStatsResponse> apiResponse = objectMapper.readValue(
-                    response.body(),
+                    body,
                     objectMapper.getTypeFactory().constructParametricType(
                             ApiResponse.class, FuelStatsResponse.class));
 
@@ -156,6 +148,43 @@ public class ApiClient {
         }
     }
 
+    /**
+     * GET a URL, sending the ETag of the last response for it. On 304 Not
+     * Modified the cached body is returned instead of downloading it again.
+     */
+    private String getConditionally(String url) throws Exception {
+        CachedResponse cached = responseCache.get(url);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Accept", "application/json")
+                .timeout(Duration.ofSeconds(10))
+                .GET();
+        if (cached != null) {
+            builder.header("If-None-Match", cached.etag());
+        }
+
+        HttpResponse<String> response = httpClient.send(builder.build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() == 304 && cached != null) {
+            return cached.body();
+        }
+
+        // Check for HTTP errors
+        if (response.statusCode() >= 400) {
+            throw new ApiClientException("HTTP error: " + response.statusCode());
+        }
+
+        response.headers().firstValue("ETag").ifPresentOrElse(
+                etag -> responseCache.put(url, new CachedResponse(etag, response.body())),
+                () -> responseCache.remove(url));
+        return response.body();
+    }
+
+    private record CachedResponse(String etag, String body) {
+    }
+
     /**
      * Test connection to backend
      */